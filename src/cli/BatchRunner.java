@@ -0,0 +1,214 @@
+package cli;
+
+import logic.Data;
+import logic.Instruction;
+import logic.MemoryImage;
+import logic.Processor;
+import logic.TraceSource;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+// Headless runner: simulates every program of a directory on every given machine file and prints
+// one CSV line per run. All runs are simulated in parallel, results come out in a fixed order.
+// Files ending in .trace are streamed from disk as instruction traces, text or binary.
+//
+// Every run's memory can start from a memory image. With --dump-memory each run writes its memory
+// to <dir>/<machine>_<program>.mem when it ends, or once it reaches --dump-cycle.
+//
+//   java cli.BatchRunner [--threads N] [--max-cycles N] [--memory-image file] [--dump-memory dir [--dump-cycle N]] <program-dir> <machine-file>...
+public class BatchRunner {
+	private static final String LINE_BREAK = "\\r?\\n";
+	private static final String TRACE_SUFFIX = ".trace";
+	static final String SUMMARY_HEADER = "status,cycles,instructions,ipc,cache_hits,cache_misses,hit_rate,bus_utilization,squashed,prediction_accuracy,forwarded_loads,order_stalls,merged_misses,mshr_stalls,mlp";
+	private static final String USAGE = "usage: BatchRunner [--threads N] [--max-cycles N] [--memory-image file] [--dump-memory dir [--dump-cycle N]] <program-dir> <machine-file>...";
+	private static final String IMAGE_SUFFIX = ".mem";
+
+	private final ForkJoinPool pool;
+	private final int maxCycles;
+	private Path dumpDirectory; // null for no dumps
+	private int dumpCycle = -1; // -1 dumps at the end of the run
+
+	public BatchRunner(int threads, int maxCycles) {
+		this.pool = new ForkJoinPool(threads);
+		this.maxCycles = maxCycles;
+	}
+
+	public void dumpMemory(Path directory, int cycle) {
+		this.dumpDirectory = directory;
+		this.dumpCycle = cycle;
+	}
+
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int maxCycles = 1_000_000;
+		String image = null;
+		String dumpDirectory = null;
+		int dumpCycle = -1;
+		List<String> paths = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--threads" -> threads = Integer.parseInt(args[++i]);
+					case "--max-cycles" -> maxCycles = Integer.parseInt(args[++i]);
+					case "--memory-image" -> image = args[++i];
+					case "--dump-memory" -> dumpDirectory = args[++i];
+					case "--dump-cycle" -> dumpCycle = Integer.parseInt(args[++i]);
+					default -> paths.add(args[i]);
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		if (paths.size() < 2 || (dumpCycle >= 0 && dumpDirectory == null)) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		try {
+			List<Path> programs = listPrograms(Path.of(paths.getFirst()));
+			MemoryImage memoryImage = image != null ? MemoryImage.open(Path.of(image)) : null;
+			List<MachineFile> machines = new ArrayList<>();
+			for (String path : paths.subList(1, paths.size())) {
+				MachineFile machine = MachineFile.read(Path.of(path));
+				machines.add(memoryImage != null ? machine.withMemoryImage(memoryImage) : machine);
+			}
+			BatchRunner runner = new BatchRunner(threads, maxCycles);
+			if (dumpDirectory != null) {
+				Files.createDirectories(Path.of(dumpDirectory));
+				runner.dumpMemory(Path.of(dumpDirectory), dumpCycle);
+			}
+			runner.run(machines, programs, System.out);
+			runner.pool.shutdown();
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	static List<Path> listPrograms(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(Files::isRegularFile).sorted().toList();
+		}
+	}
+
+	// Same line format as the instruction dialog: operation dest src1 src2
+	static List<Instruction> readProgram(Path path) throws IOException {
+		List<Instruction> instructions = new ArrayList<>();
+		for (String line : Files.readString(path).split(LINE_BREAK)) {
+			String[] parts = line.trim().split("\\s+");
+			if (parts.length == 4) {
+				instructions.add(new Instruction(parts[0], parts[1], parts[2], parts[3]));
+			}
+		}
+		return instructions;
+	}
+
+	public void run(List<MachineFile> machines, List<Path> programs, PrintStream out) {
+		out.println("machine,program," + SUMMARY_HEADER);
+		List<Future<String>> results = new ArrayList<>();
+		for (MachineFile machine : machines) {
+			for (Path program : programs) {
+				results.add(pool.submit(runTask(machine, program)));
+			}
+		}
+		for (Future<String> result : results) {
+			try {
+				out.println(result.get());
+			} catch (ExecutionException e) {
+				throw new IllegalStateException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	private Callable<String> runTask(MachineFile machine, Path program) {
+		return () -> {
+			String prefix = machine.getName() + "," + program.getFileName() + ",";
+			try {
+				if (program.getFileName().toString().endsWith(TRACE_SUFFIX)) {
+					try (TraceSource trace = machine.openTrace(program)) {
+						return prefix + simulate(machine.newProcessor(trace), dumpPath(machine, program));
+					}
+				}
+				return prefix + simulate(machine.newProcessor(readProgram(program)), dumpPath(machine, program));
+			} catch (IOException | RuntimeException e) {
+				// one broken kernel must not stop the batch
+				return prefix + error(e);
+			}
+		};
+	}
+
+	private Path dumpPath(MachineFile machine, Path program) {
+		return dumpDirectory == null ? null : dumpDirectory.resolve(machine.getName() + "_" + program.getFileName() + IMAGE_SUFFIX);
+	}
+
+	// Like simulate(processor, maxCycles), also writing the memory to dumpPath unless it is null
+	private String simulate(Processor processor, Path dumpPath) throws IOException {
+		if (dumpPath == null) {
+			return simulate(processor, maxCycles);
+		}
+		processor.disableHistory();
+		// event-driven runs skip cycles, the dump cycle must not be one of them
+		processor.setEventDriven(dumpCycle < 0);
+		boolean dumped = false;
+		while (true) {
+			if (!dumped && dumpCycle >= 0 && processor.getCycle() >= dumpCycle) {
+				processor.getData().saveImage(dumpPath);
+				dumped = true;
+			}
+			if (processor.isSimulationComplete() || processor.getCycle() >= maxCycles) {
+				break;
+			}
+			processor.simulate();
+		}
+		if (!dumped) {
+			processor.getData().saveImage(dumpPath);
+		}
+		return summary(processor);
+	}
+
+	// Runs without history until the program finishes or maxCycles is reached, returns the summary columns
+	static String simulate(Processor processor, int maxCycles) {
+		processor.disableHistory();
+		processor.setEventDriven(true);
+		while (!processor.isSimulationComplete() && processor.getCycle() < maxCycles) {
+			processor.simulate();
+		}
+		return summary(processor);
+	}
+
+	static String error(Exception e) {
+		return "error: " + String.valueOf(e.getMessage()).replace(',', ';') + ",,,,,,,,,,,,,,";
+	}
+
+	private static String summary(Processor processor) {
+		Data data = processor.getData();
+		int cycles = processor.getCycle();
+		long hits = data.getCacheHits();
+		long misses = data.getCacheMisses();
+		String status = processor.isSimulationComplete() ? "ok" : "timeout";
+		double ipc = cycles == 0 ? 0 : (double) processor.getCommittedCount() / cycles;
+		double hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+		// averaged over the buses
+		double busUtilization = 0;
+		for (int b = 0; b < processor.getBusCount(); b++) {
+			busUtilization += processor.getBusUtilization(b) / processor.getBusCount();
+		}
+		return String.format(Locale.ROOT, "%s,%d,%d,%.4f,%d,%d,%.4f,%.4f,%d,%.4f,%d,%d,%d,%d,%.4f", status, cycles, processor.getCommittedCount(), ipc, hits, misses, hitRate, busUtilization, processor.getSquashedCount(), processor.getBranchStatistics().getAccuracy(),
+				processor.getForwardedLoads(), processor.getMemoryOrderStalls(), processor.getMergedMisses(), processor.getMshrStalls(), processor.getMemoryLevelParallelism());
+	}
+}
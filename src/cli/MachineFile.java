@@ -0,0 +1,409 @@
+package cli;
+
+import logic.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Machine description read from a text file. Each section holds the same lines the GUI dialogs
+// accept, blank lines and lines starting with # are ignored:
+//
+//   stations:
+//   ADD_D 3
+//   buffers:
+//   L_D 2
+//   cache:
+//   10 2 2 10 100        (cacheSize blockSize hitLatency missPenalty memorySize)
+//   16 2 2 10 100 4 plru (optionally ways per set, direct-mapped by default, and lru, plru, fifo or random)
+//   levels:
+//   64 2 8 4 lru inclusive   (optional, L2 then L3: size blockSize latency [ways [policy [inclusion]]],
+//                             inclusion is inclusive, non-inclusive or exclusive, missPenalty is then
+//                             the memory latency behind the last level)
+//   memory:
+//   sparse random 42     (optional, dense or sparse, then zero, pattern or random and a seed. Dense
+//                         random words, different every run, by default. A sparse memory allocates
+//                         pages on first write, so memorySize may be as large as 2147483647. Either
+//                         kind reads the pages a memory image covers from the image until written)
+//   latencies:
+//   ADD_D 2              (optional, unlisted instructions keep their default latency, must agree with
+//                         the latency of the operation's unit pool)
+//   registers:
+//   32                   (optional, defaults to 32)
+//   fetch:
+//   4                    (optional, fetch buffer depth)
+//   issue:
+//   2                    (optional, instructions issued per cycle, defaults to 1)
+//   cdb:
+//   2 oldest             (optional, bus count and dependents, oldest or round-robin arbitration)
+//   rob:
+//   16                   (optional, reorder buffer entries, 0 issues in order without speculation)
+//   mshrs:
+//   4                    (optional, L1 misses loads may have outstanding, 0 for no limit and no merging)
+//   branches:
+//   2                    (optional, branch units, defaults to 1)
+//   predictor:
+//   gshare 4096 12       (optional, not-taken, one-bit, two-bit or gshare, then table entries and history bits)
+//   units:
+//   MUL_D,MUL_S 1 10 pipelined   (optional, operations sharing the pool, unit count, latency, pipelined or blocking)
+public class MachineFile {
+	static final int CACHE_SIZE = 0;
+	static final int CACHE_BLOCK = 1;
+	static final int CACHE_HIT = 2;
+	static final int CACHE_MISS = 3;
+	static final int MEMORY_SIZE = 4;
+	static final int CACHE_WAYS = 5;
+
+	final String name;
+	final List<ReservationStationGroup> reservationStations;
+	final List<LoadStoreBufferGroup> loadStoreBuffers;
+	MachineConfig config = MachineConfig.defaults();
+	int[] cache;
+	ReplacementPolicy replacement = ReplacementPolicy.LRU;
+	final List<CacheLevel> lowerLevels;
+	boolean sparseMemory;
+	MemoryFill memoryFill = MemoryFill.RANDOM;
+	Long memorySeed; // null for a new seed every run
+	MemoryImage memoryImage; // null for none
+	int registerFileSize = 32;
+	// latency the latencies or units section gave each operation, only used while reading
+	private final Map<InstructionType, Integer> listedLatencies = new EnumMap<>(InstructionType.class);
+
+	private MachineFile(String name) {
+		this.name = name;
+		this.reservationStations = new ArrayList<>();
+		this.loadStoreBuffers = new ArrayList<>();
+		this.lowerLevels = new ArrayList<>();
+	}
+
+	// The group templates are never simulated, so copies may share them
+	private MachineFile(MachineFile machine) {
+		this.name = machine.name;
+		this.reservationStations = new ArrayList<>(machine.reservationStations);
+		this.loadStoreBuffers = new ArrayList<>(machine.loadStoreBuffers);
+		this.config = machine.config;
+		this.cache = machine.cache.clone();
+		this.replacement = machine.replacement;
+		this.lowerLevels = new ArrayList<>(machine.lowerLevels);
+		this.sparseMemory = machine.sparseMemory;
+		this.memoryFill = machine.memoryFill;
+		this.memorySeed = machine.memorySeed;
+		this.memoryImage = machine.memoryImage;
+		this.registerFileSize = machine.registerFileSize;
+	}
+
+	public static MachineFile read(Path path) throws IOException {
+		String fileName = path.getFileName().toString();
+		int dot = fileName.lastIndexOf('.');
+		MachineFile machine = new MachineFile(dot > 0 ? fileName.substring(0, dot) : fileName);
+
+		String section = null;
+		List<String> lines = Files.readAllLines(path);
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			if (line.endsWith(":")) {
+				section = line.substring(0, line.length() - 1).trim().toLowerCase();
+				continue;
+			}
+			String[] parts = line.split("\\s+");
+			try {
+				machine.parseLine(section, parts);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(path + ":" + (i + 1) + ": " + e.getMessage(), e);
+			}
+		}
+
+		if (machine.reservationStations.isEmpty() && machine.loadStoreBuffers.isEmpty()) {
+			throw new IllegalArgumentException(path + ": no stations or buffers");
+		}
+		if (machine.cache == null) {
+			throw new IllegalArgumentException(path + ": missing cache section");
+		}
+		return machine;
+	}
+
+	private void parseLine(String section, String[] parts) {
+		if (section == null) {
+			throw new IllegalArgumentException("line outside of a section");
+		}
+		switch (section) {
+			case "stations" -> {
+				expect(parts, 2);
+				reservationStations.add(new ReservationStationGroup(Integer.parseInt(parts[1]), InstructionType.valueOf(parts[0].toUpperCase())));
+			}
+			case "buffers" -> {
+				expect(parts, 2);
+				loadStoreBuffers.add(new LoadStoreBufferGroup(Integer.parseInt(parts[1]), InstructionType.valueOf(parts[0].toUpperCase())));
+			}
+			case "cache" -> {
+				if (parts.length < 5 || parts.length > 7) {
+					throw new IllegalArgumentException("expected 5 values, optional ways and replacement policy");
+				}
+				cache = new int[6];
+				cache[CACHE_WAYS] = 1;
+				for (int i = 0; i < Math.min(parts.length, 6); i++) {
+					cache[i] = Integer.parseInt(parts[i]);
+				}
+				if (parts.length == 7) {
+					replacement = ReplacementPolicy.valueOf(parts[6].toUpperCase());
+				}
+			}
+			case "levels" -> {
+				if (parts.length < 3 || parts.length > 6) {
+					throw new IllegalArgumentException("expected size, block size, latency, optional ways, replacement and inclusion policy");
+				}
+				int ways = parts.length > 3 ? Integer.parseInt(parts[3]) : 1;
+				ReplacementPolicy policy = parts.length > 4 ? ReplacementPolicy.valueOf(parts[4].toUpperCase()) : ReplacementPolicy.LRU;
+				InclusionPolicy inclusion = parts.length > 5 ? InclusionPolicy.valueOf(parts[5].toUpperCase().replace('-', '_')) : InclusionPolicy.NON_INCLUSIVE;
+				lowerLevels.add(new CacheLevel(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), ways, policy, inclusion));
+			}
+			case "memory" -> {
+				if (parts.length < 1 || parts.length > 3) {
+					throw new IllegalArgumentException("expected dense or sparse, an optional fill and seed");
+				}
+				sparseMemory = switch (parts[0].toLowerCase()) {
+					case "sparse" -> true;
+					case "dense" -> false;
+					default -> throw new IllegalArgumentException("expected dense or sparse: " + parts[0]);
+				};
+				if (parts.length > 1) {
+					memoryFill = MemoryFill.valueOf(parts[1].toUpperCase());
+				}
+				if (parts.length > 2) {
+					memorySeed = Long.parseLong(parts[2]);
+				}
+			}
+			case "latencies" -> {
+				expect(parts, 2);
+				InstructionType operation = InstructionType.valueOf(parts[0].toUpperCase());
+				int latency = Integer.parseInt(parts[1]);
+				listLatency(operation, latency);
+				config = config.withLatency(operation, latency);
+			}
+			case "registers" -> {
+				expect(parts, 1);
+				registerFileSize = Integer.parseInt(parts[0]);
+			}
+			case "fetch" -> {
+				expect(parts, 1);
+				config = config.withFetchDepth(Integer.parseInt(parts[0]));
+			}
+			case "issue" -> {
+				expect(parts, 1);
+				config = config.withIssueWidth(Integer.parseInt(parts[0]));
+			}
+			case "cdb" -> {
+				if (parts.length != 1 && parts.length != 2) {
+					throw new IllegalArgumentException("expected a bus count and an optional arbitration");
+				}
+				config = config.withBusCount(Integer.parseInt(parts[0]));
+				if (parts.length == 2) {
+					config = config.withArbitration(CdbArbitration.valueOf(parts[1].toUpperCase().replace('-', '_')));
+				}
+			}
+			case "rob" -> {
+				expect(parts, 1);
+				config = config.withRobSize(Integer.parseInt(parts[0]));
+			}
+			case "mshrs" -> {
+				expect(parts, 1);
+				config = config.withMshrCount(Integer.parseInt(parts[0]));
+			}
+			case "branches" -> {
+				expect(parts, 1);
+				config = config.withBranchUnits(Integer.parseInt(parts[0]));
+			}
+			case "predictor" -> {
+				if (parts.length < 1 || parts.length > 3) {
+					throw new IllegalArgumentException("expected a predictor, optional table entries and history bits");
+				}
+				config = config.withPredictor(BranchPredictorType.valueOf(parts[0].toUpperCase().replace('-', '_')));
+				if (parts.length > 1) {
+					config = config.withPredictorEntries(Integer.parseInt(parts[1]));
+				}
+				if (parts.length > 2) {
+					config = config.withHistoryBits(Integer.parseInt(parts[2]));
+				}
+			}
+			case "units" -> {
+				expect(parts, 4);
+				String[] names = parts[0].split(",");
+				InstructionType[] operations = new InstructionType[names.length];
+				for (int i = 0; i < names.length; i++) {
+					operations[i] = InstructionType.valueOf(names[i].toUpperCase());
+				}
+				boolean pipelined = switch (parts[3].toLowerCase()) {
+					case "pipelined" -> true;
+					case "blocking" -> false;
+					default -> throw new IllegalArgumentException("expected pipelined or blocking: " + parts[3]);
+				};
+				int latency = Integer.parseInt(parts[2]);
+				for (InstructionType operation : operations) {
+					listLatency(operation, latency);
+				}
+				config = config.withUnits(Integer.parseInt(parts[1]), latency, pipelined, operations);
+			}
+			default -> throw new IllegalArgumentException("unknown section: " + section);
+		}
+	}
+
+	// The units section sets the latency of its operations too, so the order of the sections must not decide it
+	private void listLatency(InstructionType operation, int latency) {
+		Integer listed = listedLatencies.putIfAbsent(operation, latency);
+		if (listed != null && listed != latency) {
+			throw new IllegalArgumentException("conflicting latencies for " + operation + ": " + listed + " and " + latency);
+		}
+	}
+
+	private static void expect(String[] parts, int count) {
+		if (parts.length != count) {
+			throw new IllegalArgumentException("expected " + count + " values, got " + parts.length);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	// Copies with one parameter changed, used by sweeps. Groups are replaced in place so station
+	// order stays the same, a group for an operation the machine did not have is added at the end.
+
+	public MachineFile withStations(InstructionType operation, int size) {
+		MachineFile machine = new MachineFile(this);
+		ReservationStationGroup group = new ReservationStationGroup(size, operation);
+		List<ReservationStationGroup> groups = machine.reservationStations;
+		int i = 0;
+		while (i < groups.size() && groups.get(i).getOperation() != operation) {
+			i++;
+		}
+		if (i < groups.size()) {
+			groups.set(i, group);
+		} else {
+			groups.add(group);
+		}
+		return machine;
+	}
+
+	public MachineFile withBuffers(InstructionType operation, int size) {
+		MachineFile machine = new MachineFile(this);
+		LoadStoreBufferGroup group = new LoadStoreBufferGroup(size, operation);
+		List<LoadStoreBufferGroup> groups = machine.loadStoreBuffers;
+		int i = 0;
+		while (i < groups.size() && groups.get(i).getOperation() != operation) {
+			i++;
+		}
+		if (i < groups.size()) {
+			groups.set(i, group);
+		} else {
+			groups.add(group);
+		}
+		return machine;
+	}
+
+	public MachineFile withLatency(InstructionType operation, int latency) {
+		MachineFile machine = new MachineFile(this);
+		machine.config = config.withLatency(operation, latency);
+		return machine;
+	}
+
+	public MachineFile withIssueWidth(int issueWidth) {
+		MachineFile machine = new MachineFile(this);
+		machine.config = config.withIssueWidth(issueWidth);
+		return machine;
+	}
+
+	public MachineFile withBusCount(int busCount) {
+		MachineFile machine = new MachineFile(this);
+		machine.config = config.withBusCount(busCount);
+		return machine;
+	}
+
+	public MachineFile withRobSize(int robSize) {
+		MachineFile machine = new MachineFile(this);
+		machine.config = config.withRobSize(robSize);
+		return machine;
+	}
+
+	public MachineFile withMshrCount(int mshrCount) {
+		MachineFile machine = new MachineFile(this);
+		machine.config = config.withMshrCount(mshrCount);
+		return machine;
+	}
+
+	public MachineFile withPredictorEntries(int entries) {
+		MachineFile machine = new MachineFile(this);
+		machine.config = config.withPredictorEntries(entries);
+		return machine;
+	}
+
+	public MachineFile withHistoryBits(int historyBits) {
+		MachineFile machine = new MachineFile(this);
+		machine.config = config.withHistoryBits(historyBits);
+		return machine;
+	}
+
+	public MachineFile withUnitCount(InstructionType operation, int count) {
+		MachineFile machine = new MachineFile(this);
+		machine.config = config.withUnitCount(operation, count);
+		return machine;
+	}
+
+	// Every processor of the machine starts with the words of the image in memory
+	public MachineFile withMemoryImage(MemoryImage image) {
+		MachineFile machine = new MachineFile(this);
+		machine.memoryImage = image;
+		return machine;
+	}
+
+	public MachineFile withCache(int parameter, int value) {
+		MachineFile machine = new MachineFile(this);
+		machine.cache[parameter] = value;
+		return machine;
+	}
+
+	// Fresh machine state for one run, nothing is shared between processors
+	public Processor newProcessor(List<Instruction> instructions) {
+		return new Processor(copyStations(), copyBuffers(), newData(), instructions, registerFileSize, config);
+	}
+
+	public Processor newProcessor(TraceSource trace) {
+		return new Processor(copyStations(), copyBuffers(), newData(), trace, registerFileSize, config);
+	}
+
+	// Trace checked against this machine's register file and memory
+	public TraceSource openTrace(Path path) throws IOException {
+		return TraceSource.open(path, registerFileSize, cache[MEMORY_SIZE]);
+	}
+
+	private List<ReservationStationGroup> copyStations() {
+		List<ReservationStationGroup> stations = new ArrayList<>();
+		for (ReservationStationGroup group : reservationStations) {
+			stations.add(new ReservationStationGroup(group));
+		}
+		return stations;
+	}
+
+	private List<LoadStoreBufferGroup> copyBuffers() {
+		List<LoadStoreBufferGroup> buffers = new ArrayList<>();
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			buffers.add(new LoadStoreBufferGroup(group));
+		}
+		return buffers;
+	}
+
+	private Data newData() {
+		List<CacheLevel> levels = new ArrayList<>();
+		levels.add(new CacheLevel(cache[CACHE_SIZE], cache[CACHE_BLOCK], cache[CACHE_HIT], cache[CACHE_WAYS], replacement, InclusionPolicy.NON_INCLUSIVE));
+		levels.addAll(lowerLevels);
+		long seed = memorySeed != null ? memorySeed : new Random().nextLong();
+		return new Data(levels, cache[CACHE_MISS], cache[MEMORY_SIZE], memoryFill, seed, sparseMemory, memoryImage);
+	}
+}
@@ -0,0 +1,125 @@
+package cli;
+
+import logic.Instruction;
+import logic.MemoryImage;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Design-space sweep: simulates one program on every point of a SweepSpace, starting from a base
+// machine file. Each worker claims the next point index, so nothing but the rows in flight is kept
+// in memory. Rows are written as runs finish, the first column is the point index.
+//
+//   java cli.Sweep [--threads N] [--max-cycles N] [--out file.csv] [--memory-image file] <program> <machine-file> <sweep-file>
+public class Sweep {
+	private static final String USAGE = "usage: Sweep [--threads N] [--max-cycles N] [--out file.csv] [--memory-image file] <program> <machine-file> <sweep-file>";
+
+	private final MachineFile base;
+	private final SweepSpace space;
+	private final List<Instruction> program;
+	private final int maxCycles;
+	private final AtomicLong next = new AtomicLong();
+
+	public Sweep(MachineFile base, SweepSpace space, List<Instruction> program, int maxCycles) {
+		this.base = base;
+		this.space = space;
+		this.program = program;
+		this.maxCycles = maxCycles;
+	}
+
+	public static void main(String[] args) {
+		int threads = Runtime.getRuntime().availableProcessors();
+		int maxCycles = 1_000_000;
+		String output = null;
+		String image = null;
+		List<String> paths = new ArrayList<>();
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+					case "--threads" -> threads = Integer.parseInt(args[++i]);
+					case "--max-cycles" -> maxCycles = Integer.parseInt(args[++i]);
+					case "--out" -> output = args[++i];
+					case "--memory-image" -> image = args[++i];
+					default -> paths.add(args[i]);
+				}
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		if (paths.size() != 3) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		try {
+			List<Instruction> program = BatchRunner.readProgram(Path.of(paths.get(0)));
+			MachineFile base = MachineFile.read(Path.of(paths.get(1)));
+			if (image != null) {
+				base = base.withMemoryImage(MemoryImage.open(Path.of(image)));
+			}
+			SweepSpace space = SweepSpace.read(Path.of(paths.get(2)));
+			Sweep sweep = new Sweep(base, space, program, maxCycles);
+			if (output == null) {
+				sweep.run(threads, System.out);
+			} else {
+				try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(output)))) {
+					sweep.run(threads, out);
+				}
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	public void run(int threads, PrintStream out) {
+		out.println("point," + space.header() + BatchRunner.SUMMARY_HEADER);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		List<Future<?>> workers = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			workers.add(pool.submit(() -> work(out)));
+		}
+		try {
+			for (Future<?> worker : workers) {
+				worker.get();
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		} finally {
+			pool.shutdown();
+			out.flush();
+		}
+	}
+
+	private void work(PrintStream out) {
+		int[] values = new int[space.dimensionCount()];
+		StringBuilder row = new StringBuilder();
+		long point;
+		while ((point = next.getAndIncrement()) < space.size()) {
+			space.decode(point, values);
+			row.setLength(0);
+			row.append(point).append(',');
+			for (int value : values) {
+				row.append(value).append(',');
+			}
+			try {
+				row.append(BatchRunner.simulate(space.apply(base, values).newProcessor(program), maxCycles));
+			} catch (RuntimeException e) {
+				row.append(BatchRunner.error(e));
+			}
+			synchronized (out) {
+				out.println(row);
+				out.flush();
+			}
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package cli;
+
+import logic.InstructionType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cross product of parameter ranges read from a sweep file, one dimension per line:
+//
+//   stations.ADD_D 1..4          (inclusive range)
+//   buffers.L_D 1,2,4            (list)
+//   latency.MUL_D 4..16:4        (range with step)
+//   cache.size 4,8,16
+//   cache.block 1..2
+//   cache.hit 1..3
+//   cache.miss 10,50
+//   cache.ways 1,2,4
+//   issue.width 1..4
+//   cdb.count 1,2
+//   rob.size 0,8,16
+//   mshr.count 1,2,4
+//   predictor.entries 256,1024
+//   predictor.history 4..12:4
+//   units.MUL_D 1,2              (size of the unit pool executing MUL_D)
+//
+// Points are never materialized: a point index is decoded into one value per dimension like an
+// odometer, the last dimension changing fastest.
+public class SweepSpace {
+	private enum Kind {
+		STATIONS, BUFFERS, LATENCY, CACHE, ISSUE_WIDTH, BUS_COUNT, ROB_SIZE, MSHR_COUNT, PREDICTOR_ENTRIES, HISTORY_BITS, UNITS
+	}
+
+	private static class Dimension {
+		final String name;
+		final Kind kind;
+		final InstructionType operation;
+		final int cacheParameter;
+		final int[] values;
+
+		Dimension(String name, Kind kind, InstructionType operation, int cacheParameter, int[] values) {
+			this.name = name;
+			this.kind = kind;
+			this.operation = operation;
+			this.cacheParameter = cacheParameter;
+			this.values = values;
+		}
+	}
+
+	private final List<Dimension> dimensions = new ArrayList<>();
+	private long size = 1;
+
+	private SweepSpace() {
+	}
+
+	public static SweepSpace read(Path path) throws IOException {
+		SweepSpace space = new SweepSpace();
+		List<String> lines = Files.readAllLines(path);
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			try {
+				space.add(line.split("\\s+"));
+			} catch (IllegalArgumentException | ArithmeticException e) {
+				throw new IllegalArgumentException(path + ":" + (i + 1) + ": " + e.getMessage(), e);
+			}
+		}
+		return space;
+	}
+
+	private void add(String[] parts) {
+		if (parts.length != 2) {
+			throw new IllegalArgumentException("expected a parameter and its values");
+		}
+		String name = parts[0];
+		int dot = name.indexOf('.');
+		if (dot < 0) {
+			throw new IllegalArgumentException("unknown parameter: " + name);
+		}
+		String group = name.substring(0, dot).toLowerCase();
+		String key = name.substring(dot + 1);
+		int[] values = parseValues(parts[1]);
+		Dimension dimension = switch (group) {
+			case "stations" -> new Dimension(name, Kind.STATIONS, InstructionType.valueOf(key.toUpperCase()), -1, values);
+			case "buffers" -> new Dimension(name, Kind.BUFFERS, InstructionType.valueOf(key.toUpperCase()), -1, values);
+			case "latency" -> new Dimension(name, Kind.LATENCY, InstructionType.valueOf(key.toUpperCase()), -1, values);
+			case "cache" -> new Dimension(name, Kind.CACHE, null, switch (key.toLowerCase()) {
+				case "size" -> MachineFile.CACHE_SIZE;
+				case "block" -> MachineFile.CACHE_BLOCK;
+				case "hit" -> MachineFile.CACHE_HIT;
+				case "miss" -> MachineFile.CACHE_MISS;
+				case "ways" -> MachineFile.CACHE_WAYS;
+				default -> throw new IllegalArgumentException("unknown cache parameter: " + key);
+			}, values);
+			case "issue" -> {
+				if (!key.equalsIgnoreCase("width")) {
+					throw new IllegalArgumentException("unknown issue parameter: " + key);
+				}
+				yield new Dimension(name, Kind.ISSUE_WIDTH, null, -1, values);
+			}
+			case "cdb" -> {
+				if (!key.equalsIgnoreCase("count")) {
+					throw new IllegalArgumentException("unknown cdb parameter: " + key);
+				}
+				yield new Dimension(name, Kind.BUS_COUNT, null, -1, values);
+			}
+			case "rob" -> {
+				if (!key.equalsIgnoreCase("size")) {
+					throw new IllegalArgumentException("unknown rob parameter: " + key);
+				}
+				yield new Dimension(name, Kind.ROB_SIZE, null, -1, values);
+			}
+			case "mshr" -> {
+				if (!key.equalsIgnoreCase("count")) {
+					throw new IllegalArgumentException("unknown mshr parameter: " + key);
+				}
+				yield new Dimension(name, Kind.MSHR_COUNT, null, -1, values);
+			}
+			case "predictor" -> switch (key.toLowerCase()) {
+				case "entries" -> new Dimension(name, Kind.PREDICTOR_ENTRIES, null, -1, values);
+				case "history" -> new Dimension(name, Kind.HISTORY_BITS, null, -1, values);
+				default -> throw new IllegalArgumentException("unknown predictor parameter: " + key);
+			};
+			case "units" -> new Dimension(name, Kind.UNITS, InstructionType.valueOf(key.toUpperCase()), -1, values);
+			default -> throw new IllegalArgumentException("unknown parameter: " + name);
+		};
+		size = Math.multiplyExact(size, values.length);
+		dimensions.add(dimension);
+	}
+
+	private static int[] parseValues(String text) {
+		int range = text.indexOf("..");
+		if (range < 0) {
+			String[] items = text.split(",");
+			int[] values = new int[items.length];
+			for (int i = 0; i < items.length; i++) {
+				values[i] = Integer.parseInt(items[i]);
+			}
+			return values;
+		}
+		int from = Integer.parseInt(text.substring(0, range));
+		String rest = text.substring(range + 2);
+		int step = 1;
+		int colon = rest.indexOf(':');
+		if (colon >= 0) {
+			step = Integer.parseInt(rest.substring(colon + 1));
+			rest = rest.substring(0, colon);
+		}
+		int to = Integer.parseInt(rest);
+		if (step < 1 || to < from) {
+			throw new IllegalArgumentException("empty range: " + text);
+		}
+		int[] values = new int[(to - from) / step + 1];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = from + i * step;
+		}
+		return values;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public int dimensionCount() {
+		return dimensions.size();
+	}
+
+	public String header() {
+		StringBuilder sb = new StringBuilder();
+		for (Dimension dimension : dimensions) {
+			sb.append(dimension.name).append(',');
+		}
+		return sb.toString();
+	}
+
+	// Fills values with the parameter values of point index
+	public void decode(long index, int[] values) {
+		for (int d = dimensions.size() - 1; d >= 0; d--) {
+			int[] range = dimensions.get(d).values;
+			values[d] = range[(int) (index % range.length)];
+			index /= range.length;
+		}
+	}
+
+	public MachineFile apply(MachineFile base, int[] values) {
+		MachineFile machine = base;
+		for (int d = 0; d < dimensions.size(); d++) {
+			Dimension dimension = dimensions.get(d);
+			machine = switch (dimension.kind) {
+				case STATIONS -> machine.withStations(dimension.operation, values[d]);
+				case BUFFERS -> machine.withBuffers(dimension.operation, values[d]);
+				case LATENCY -> machine.withLatency(dimension.operation, values[d]);
+				case CACHE -> machine.withCache(dimension.cacheParameter, values[d]);
+				case ISSUE_WIDTH -> machine.withIssueWidth(values[d]);
+				case BUS_COUNT -> machine.withBusCount(values[d]);
+				case ROB_SIZE -> machine.withRobSize(values[d]);
+				case MSHR_COUNT -> machine.withMshrCount(values[d]);
+				case PREDICTOR_ENTRIES -> machine.withPredictorEntries(values[d]);
+				case HISTORY_BITS -> machine.withHistoryBits(values[d]);
+				case UNITS -> machine.withUnitCount(dimension.operation, values[d]);
+			};
+		}
+		return machine;
+	}
+}
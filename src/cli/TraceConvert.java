@@ -0,0 +1,27 @@
+package cli;
+
+import logic.TraceWriter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// Converts a text instruction trace to the compact binary trace format.
+//
+//   java cli.TraceConvert <text-trace> <binary-trace>
+public class TraceConvert {
+	private static final String USAGE = "usage: TraceConvert <text-trace> <binary-trace>";
+
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+		try {
+			long count = TraceWriter.convert(Path.of(args[0]), Path.of(args[1]));
+			System.err.println(count + " instructions written");
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+}
@@ -7,9 +7,12 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import logic.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -66,7 +69,7 @@ public class MainApp extends Application {
 		controlPanel.getChildren().addAll(currentCycleLabel, cycleInputField, skipCycleButton);
 
 		// Menu Bar
-		MenuBar menuBar = createMenuBar();
+		MenuBar menuBar = createMenuBar(primaryStage, () -> reset(reservationStationsTable, loadStoreBuffersTable, registerFileTable, memoryTable, cacheTable, instructionQueueTable));
 
 		// Main Layout
 		BorderPane mainLayout = new BorderPane();
@@ -111,13 +114,18 @@ public class MainApp extends Application {
 		List<LoadStoreBufferGroup> loadStoreBuffers = UserInputDialogs.getUserLoadStoreBuffers();
 		Data data = UserInputDialogs.getUserCacheData();
 		int registerFileSize = UserInputDialogs.getUserRegisterFileSize();
-
-		// Create processor
-		Processor processor = new Processor(reservationStations, loadStoreBuffers, data, instructions, registerFileSize);
-
 		// Provide Latency for each instruction
-		UserInputDialogs.setUserInstructionLatencies();
+		MachineConfig config = UserInputDialogs.getUserMachineConfig();
 
+		// Create processor, the program is checked here
+		Processor processor;
+		try {
+			processor = new Processor(reservationStations, loadStoreBuffers, data, instructions, registerFileSize, config);
+		} catch (IllegalArgumentException e) {
+			showAlert("Invalid Program", e.getMessage());
+			return initializeProcessor();
+		}
+		processor.setEventDriven(true);
 		return processor;
 	}
 
@@ -349,13 +357,17 @@ public class MainApp extends Application {
 		return controlPanel;
 	}
 
-	private MenuBar createMenuBar() {
+	private MenuBar createMenuBar(Stage stage, Runnable showFirstCycle) {
 		MenuBar menuBar = new MenuBar();
 		Menu fileMenu = new Menu("File");
 		MenuItem loadItem = new MenuItem("Load Instructions");
+		MenuItem loadImageItem = new MenuItem("Load Memory Image...");
+		loadImageItem.setOnAction(e -> loadMemoryImage(stage, showFirstCycle));
+		MenuItem saveImageItem = new MenuItem("Save Memory Image...");
+		saveImageItem.setOnAction(e -> saveMemoryImage(stage));
 		MenuItem exitItem = new MenuItem("Exit");
 		exitItem.setOnAction(e -> System.exit(0));
-		fileMenu.getItems().addAll(loadItem, exitItem);
+		fileMenu.getItems().addAll(loadItem, loadImageItem, saveImageItem, exitItem);
 
 		Menu editMenu = new Menu("Edit");
 		Menu helpMenu = new Menu("Help");
@@ -364,5 +376,42 @@ public class MainApp extends Application {
 		return menuBar;
 	}
 
+	private FileChooser memoryImageChooser(String title) {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle(title);
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Memory Images", "*.mem"));
+		return chooser;
+	}
+
+	// Restarts the simulation with the image in memory
+	private void loadMemoryImage(Stage stage, Runnable showFirstCycle) {
+		File file = memoryImageChooser("Load Memory Image").showOpenDialog(stage);
+		if (file == null) {
+			return;
+		}
+		try {
+			processor.getData().loadImage(MemoryImage.open(file.toPath()));
+		} catch (IOException | IllegalArgumentException e) {
+			showAlert("Invalid Memory Image", e.getMessage());
+			return;
+		}
+		processor.restart();
+		cycleStates = processor.getCycleStates();
+		showFirstCycle.run();
+	}
+
+	// Saves the memory of the cycle on screen
+	private void saveMemoryImage(Stage stage) {
+		File file = memoryImageChooser("Save Memory Image").showSaveDialog(stage);
+		if (file == null) {
+			return;
+		}
+		try {
+			cycleStates.get(currentCycle).data.saveImage(file.toPath());
+		} catch (IOException | IllegalArgumentException e) {
+			showAlert("Memory Image Not Saved", e.getMessage());
+		}
+	}
+
 
 }
\ No newline at end of file
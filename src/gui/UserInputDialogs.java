@@ -101,7 +101,7 @@ public class UserInputDialogs {
 		TextInputDialog dialog = new TextInputDialog();
 		TextArea textArea = new TextArea();
 		dialog.setTitle("Cache Data");
-		dialog.setHeaderText("Enter cache size, block size, hit latency, miss penalty, and memory size, one per line, in the format: cacheSize blockSize hitLatency missPenalty memorySize");
+		dialog.setHeaderText("Enter cache size, block size, hit latency, miss penalty, and memory size, one per line, in the format: cacheSize blockSize hitLatency missPenalty memorySize [ways [LRU|PLRU|FIFO|RANDOM]]");
 		dialog.setContentText("Cache Data:");
 		dialog.getDialogPane().setContent(textArea);
 
@@ -112,20 +112,23 @@ public class UserInputDialogs {
 		if (result.isPresent()) {
 			String input = result.get();
 			String[] parts = input.trim().split(" ");
-			if (parts.length == 5) {
+			if (parts.length >= 5 && parts.length <= 7) {
 				int cacheSize = Integer.parseInt(parts[0]);
 				int blockSize = Integer.parseInt(parts[1]);
 				int hitLatency = Integer.parseInt(parts[2]);
 				int missPenalty = Integer.parseInt(parts[3]);
 				int memorySize = Integer.parseInt(parts[4]);
-				return new Data(cacheSize, blockSize, hitLatency, missPenalty, memorySize);
+				int ways = parts.length > 5 ? Integer.parseInt(parts[5]) : 1;
+				ReplacementPolicy policy = parts.length > 6 ? ReplacementPolicy.valueOf(parts[6].toUpperCase()) : ReplacementPolicy.LRU;
+				return new Data(cacheSize, blockSize, hitLatency, missPenalty, memorySize, ways, policy);
 			}
 		}
 
 		return null;
 	}
 
-	public static void setUserInstructionLatencies() {
+	public static MachineConfig getUserMachineConfig() {
+		MachineConfig[] config = {MachineConfig.defaults()};
 		TextInputDialog dialog = new TextInputDialog();
 		TextArea textArea = new TextArea();
 		dialog.setTitle("Instruction Latencies");
@@ -144,10 +147,12 @@ public class UserInputDialogs {
 				if (parts.length == 2) {
 					InstructionType type = InstructionType.valueOf(parts[0].toUpperCase());
 					int latency = Integer.parseInt(parts[1]);
-					InstructionType.setLatency(type, latency);
+					config[0] = config[0].withLatency(type, latency);
 				}
 			}
 		});
+
+		return config[0];
 	}
 
 	public static int getUserRegisterFileSize() {
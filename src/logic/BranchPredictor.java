@@ -0,0 +1,17 @@
+package logic;
+
+// Guesses at issue whether a branch is taken, and learns the real outcome when it resolves. The
+// pc is the branch's instruction index. Copies keep their tables, so checkpoints restore them too.
+public interface BranchPredictor {
+	// Table entry the branch at pc is predicted from now. The processor keeps it until the branch
+	// resolves, so the branch trains that entry even if the predictor's history moved meanwhile.
+	int entry(int pc);
+
+	boolean predict(int entry);
+
+	void update(int entry, boolean taken);
+
+	BranchPredictor copy();
+
+	void reset();
+}
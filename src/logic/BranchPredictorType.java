@@ -0,0 +1,23 @@
+package logic;
+
+// Predictors a machine can be configured with
+public enum BranchPredictorType {
+	// Always falls through, so every taken branch squashes
+	NOT_TAKEN,
+	// Repeats the last outcome of the branch
+	ONE_BIT,
+	// Saturating counter per branch, a loop branch mispredicts once per loop instead of twice
+	TWO_BIT,
+	// Saturating counters indexed by the branch xor the global outcome history
+	GSHARE;
+
+	// historyBits is only used by GSHARE
+	BranchPredictor create(int entries, int historyBits) {
+		return switch (this) {
+			case NOT_TAKEN -> new NotTakenPredictor();
+			case ONE_BIT -> new OneBitPredictor(entries);
+			case TWO_BIT -> new TwoBitPredictor(entries);
+			case GSHARE -> new GsharePredictor(entries, historyBits);
+		};
+	}
+}
@@ -0,0 +1,92 @@
+package logic;
+
+import java.util.Arrays;
+
+// Prediction outcomes per branch instruction and in total. Per branch counts are kept in arrays
+// indexed by instruction index that grow to the highest branch seen.
+public class BranchStatistics {
+	private long[] predictions = new long[0];
+	private long[] mispredictions = new long[0];
+	private long[] cyclesLost = new long[0];
+	private long totalPredictions;
+	private long totalMispredictions;
+	private long totalCyclesLost;
+
+	public BranchStatistics() {
+	}
+
+	public BranchStatistics(BranchStatistics statistics) {
+		predictions = statistics.predictions.clone();
+		mispredictions = statistics.mispredictions.clone();
+		cyclesLost = statistics.cyclesLost.clone();
+		totalPredictions = statistics.totalPredictions;
+		totalMispredictions = statistics.totalMispredictions;
+		totalCyclesLost = statistics.totalCyclesLost;
+	}
+
+	// One resolved branch, lost is the number of cycles spent on the wrong path
+	void record(int index, boolean mispredicted, int lost) {
+		if (index >= predictions.length) {
+			int size = Math.max(index + 1, predictions.length * 2);
+			predictions = Arrays.copyOf(predictions, size);
+			mispredictions = Arrays.copyOf(mispredictions, size);
+			cyclesLost = Arrays.copyOf(cyclesLost, size);
+		}
+		predictions[index]++;
+		totalPredictions++;
+		if (mispredicted) {
+			mispredictions[index]++;
+			cyclesLost[index] += lost;
+			totalMispredictions++;
+			totalCyclesLost += lost;
+		}
+	}
+
+	void clear() {
+		predictions = new long[0];
+		mispredictions = new long[0];
+		cyclesLost = new long[0];
+		totalPredictions = 0;
+		totalMispredictions = 0;
+		totalCyclesLost = 0;
+	}
+
+	public long getPredictions() {
+		return totalPredictions;
+	}
+
+	public long getMispredictions() {
+		return totalMispredictions;
+	}
+
+	public long getCyclesLost() {
+		return totalCyclesLost;
+	}
+
+	// 1 when nothing was predicted yet
+	public double getAccuracy() {
+		return totalPredictions == 0 ? 1 : 1 - (double) totalMispredictions / totalPredictions;
+	}
+
+	// Instruction indices below this may have counts
+	public int getIndexLimit() {
+		return predictions.length;
+	}
+
+	public long getPredictions(int index) {
+		return index < predictions.length ? predictions[index] : 0;
+	}
+
+	public long getMispredictions(int index) {
+		return index < mispredictions.length ? mispredictions[index] : 0;
+	}
+
+	public long getCyclesLost(int index) {
+		return index < cyclesLost.length ? cyclesLost[index] : 0;
+	}
+
+	public double getAccuracy(int index) {
+		long count = getPredictions(index);
+		return count == 0 ? 1 : 1 - (double) getMispredictions(index) / count;
+	}
+}
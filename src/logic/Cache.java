@@ -0,0 +1,296 @@
+package logic;
+
+import java.util.Arrays;
+
+// One level of set-associative cache, one word per line, on parallel arrays indexed by
+// line = set * ways + way. A block maps to set blockNumber % sets and is identified by its block
+// number. Finding a line only scans the ways of one set, and every policy updates its state in
+// constant time per access (PLRU in log ways), so large caches cost no more per access than small ones.
+class Cache {
+	static final int NONE = -1;
+	private static final int RANDOM_SEED = 0x2545F491;
+
+	final int cacheSize;
+	final int blockSize;
+	final int latency;
+	final int ways;
+	final ReplacementPolicy policy;
+	private final int sets;
+	private final int[] tags; // block number, NONE while the line is empty
+	private final long[] data;
+	private final ValueKind[] kinds;
+	// LRU: per line the next more and less recently used way in its set, per set both ends
+	private final int[] newer;
+	private final int[] older;
+	private final int[] newest;
+	private final int[] oldest;
+	// PLRU: per set the tree bits, node n at bit n with the root at 1. FIFO: per set the next victim.
+	private final int[] setState;
+	private int random = RANDOM_SEED;
+	// Block the last fill replaced, NONE when it used an empty line
+	int victimTag = NONE;
+	long victimValue;
+	ValueKind victimKind;
+	// Changed lines are journaled as base + line, so all levels can share one log
+	Data.ChangeLog changes = new Data.ChangeLog();
+	int base;
+
+	Cache(int cacheSize, int blockSize, int latency, int ways, ReplacementPolicy policy) {
+		if (blockSize < 1 || cacheSize < blockSize) {
+			throw new IllegalArgumentException("Cache of " + cacheSize + " cannot hold blocks of " + blockSize);
+		}
+		int lines = cacheSize / blockSize;
+		if (ways < 1 || lines % ways != 0) {
+			throw new IllegalArgumentException(lines + " cache blocks cannot be split into sets of " + ways + " ways");
+		}
+		if (policy == ReplacementPolicy.PLRU && (Integer.bitCount(ways) != 1 || ways > 32)) {
+			throw new IllegalArgumentException("PLRU needs a power of two ways up to 32: " + ways);
+		}
+		this.cacheSize = cacheSize;
+		this.blockSize = blockSize;
+		this.latency = latency;
+		this.ways = ways;
+		this.policy = policy;
+		this.sets = lines / ways;
+		tags = new int[lines];
+		Arrays.fill(tags, NONE);
+		data = new long[lines];
+		kinds = new ValueKind[lines];
+		boolean lru = policy == ReplacementPolicy.LRU;
+		newer = lru ? new int[lines] : null;
+		older = lru ? new int[lines] : null;
+		newest = lru ? new int[sets] : null;
+		oldest = lru ? new int[sets] : null;
+		if (lru) {
+			Arrays.fill(newest, NONE);
+			Arrays.fill(oldest, NONE);
+		}
+		setState = new int[sets];
+	}
+
+	Cache(CacheLevel level) {
+		this(level.getSize(), level.getBlockSize(), level.getLatency(), level.getWays(), level.getPolicy());
+	}
+
+	Cache(Cache cache) {
+		cacheSize = cache.cacheSize;
+		blockSize = cache.blockSize;
+		latency = cache.latency;
+		ways = cache.ways;
+		policy = cache.policy;
+		sets = cache.sets;
+		tags = cache.tags.clone();
+		data = cache.data.clone();
+		kinds = cache.kinds.clone();
+		newer = cache.newer != null ? cache.newer.clone() : null;
+		older = cache.older != null ? cache.older.clone() : null;
+		newest = cache.newest != null ? cache.newest.clone() : null;
+		oldest = cache.oldest != null ? cache.oldest.clone() : null;
+		setState = cache.setState.clone();
+		random = cache.random;
+		base = cache.base;
+	}
+
+	int lineCount() {
+		return tags.length;
+	}
+
+	// Line holding the block of address, NONE on a miss. Does not count as a use.
+	int find(int address) {
+		int block = address / blockSize;
+		int first = (block % sets) * ways;
+		for (int line = first; line < first + ways; line++) {
+			if (tags[line] == block) {
+				return line;
+			}
+		}
+		return NONE;
+	}
+
+	// Marks the line most recently used
+	void touch(int line) {
+		int set = line / ways;
+		switch (policy) {
+			case LRU -> {
+				if (newest[set] != line) {
+					unlink(set, line);
+					pushNewest(set, line);
+				}
+			}
+			case PLRU -> {
+				int way = line - set * ways;
+				int bits = setState[set];
+				int node = 1;
+				for (int half = ways >> 1; half > 0; half >>= 1) {
+					int right = (way & half) != 0 ? 1 : 0;
+					// point the node at the other half
+					bits = right == 1 ? bits & ~(1 << node) : bits | (1 << node);
+					node = 2 * node + right;
+				}
+				setState[set] = bits;
+			}
+			default -> {
+			}
+		}
+	}
+
+	// Brings the block of address in, replacing a line of its set when the set has no empty line.
+	// The replaced block is left in the victim fields.
+	int fill(int address, long value, ValueKind kind) {
+		int block = address / blockSize;
+		int set = block % sets;
+		int line = emptyLine(set);
+		if (line == NONE) {
+			line = victim(set);
+			victimTag = tags[line];
+			victimValue = data[line];
+			victimKind = kinds[line];
+			if (policy == ReplacementPolicy.LRU) {
+				unlink(set, line);
+			}
+		} else {
+			victimTag = NONE;
+		}
+		tags[line] = block;
+		data[line] = value;
+		kinds[line] = kind;
+		changes.add(base + line);
+		if (policy == ReplacementPolicy.LRU) {
+			pushNewest(set, line);
+		} else {
+			touch(line);
+		}
+		return line;
+	}
+
+	void update(int line, long value, ValueKind kind) {
+		data[line] = value;
+		kinds[line] = kind;
+		changes.add(base + line);
+	}
+
+	void invalidate(int line) {
+		if (policy == ReplacementPolicy.LRU) {
+			unlink(line / ways, line);
+		}
+		tags[line] = NONE;
+		changes.add(base + line);
+	}
+
+	private int emptyLine(int set) {
+		int first = set * ways;
+		for (int line = first; line < first + ways; line++) {
+			if (tags[line] == NONE) {
+				return line;
+			}
+		}
+		return NONE;
+	}
+
+	private int victim(int set) {
+		int first = set * ways;
+		return switch (policy) {
+			case LRU -> oldest[set];
+			case PLRU -> {
+				int bits = setState[set];
+				int node = 1;
+				int way = 0;
+				for (int half = ways >> 1; half > 0; half >>= 1) {
+					int right = (bits >>> node) & 1;
+					way = (way << 1) | right;
+					node = 2 * node + right;
+				}
+				yield first + way;
+			}
+			case FIFO -> {
+				int way = setState[set];
+				setState[set] = (way + 1) % ways;
+				yield first + way;
+			}
+			case RANDOM -> {
+				// xorshift
+				random ^= random << 13;
+				random ^= random >>> 17;
+				random ^= random << 5;
+				yield first + Integer.remainderUnsigned(random, ways);
+			}
+		};
+	}
+
+	private void unlink(int set, int line) {
+		if (newer[line] == NONE) {
+			newest[set] = older[line];
+		} else {
+			older[newer[line]] = older[line];
+		}
+		if (older[line] == NONE) {
+			oldest[set] = newer[line];
+		} else {
+			newer[older[line]] = newer[line];
+		}
+	}
+
+	private void pushNewest(int set, int line) {
+		older[line] = newest[set];
+		newer[line] = NONE;
+		if (older[line] != NONE) {
+			newer[older[line]] = line;
+		} else {
+			oldest[set] = line;
+		}
+		newest[set] = line;
+	}
+
+	void clear() {
+		Arrays.fill(tags, NONE);
+		if (policy == ReplacementPolicy.LRU) {
+			Arrays.fill(newest, NONE);
+			Arrays.fill(oldest, NONE);
+		}
+		Arrays.fill(setState, 0);
+	}
+
+	int tag(int line) {
+		return tags[line];
+	}
+
+	long value(int line) {
+		return data[line];
+	}
+
+	ValueKind kind(int line) {
+		return kinds[line];
+	}
+
+	// Puts a line back the way CycleHistory recorded it, the replacement state only has to stay usable
+	void restore(int line, boolean valid, int tag, long value, ValueKind kind) {
+		tags[line] = valid ? tag : NONE;
+		data[line] = value;
+		kinds[line] = kind;
+		if (policy == ReplacementPolicy.LRU) {
+			rebuildLru(line / ways);
+		}
+	}
+
+	private void rebuildLru(int set) {
+		int first = set * ways;
+		newest[set] = NONE;
+		oldest[set] = NONE;
+		for (int line = first; line < first + ways; line++) {
+			if (tags[line] != NONE) {
+				pushNewest(set, line);
+			}
+		}
+	}
+
+	public String toString() {
+		// return cache as such [index]: tag, data
+		StringBuilder sb = new StringBuilder();
+		for (int line = 0; line < tags.length; line++) {
+			if (tags[line] != NONE) {
+				sb.append("[").append(line).append("]: ").append(tags[line]).append(", ").append(Values.toString(data[line], kinds[line])).append("\n");
+			}
+		}
+		return sb.toString();
+	}
+}
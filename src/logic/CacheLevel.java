@@ -0,0 +1,48 @@
+package logic;
+
+// Shape and timing of one level of the cache hierarchy. The latency is the whole access time of a
+// hit in this level, not an increment over the levels above.
+public final class CacheLevel {
+	private final int size;
+	private final int blockSize;
+	private final int latency;
+	private final int ways;
+	private final ReplacementPolicy policy;
+	private final InclusionPolicy inclusion;
+
+	public CacheLevel(int size, int blockSize, int latency, int ways, ReplacementPolicy policy, InclusionPolicy inclusion) {
+		if (latency < 0) {
+			throw new IllegalArgumentException("Cache latency must not be negative: " + latency);
+		}
+		this.size = size;
+		this.blockSize = blockSize;
+		this.latency = latency;
+		this.ways = ways;
+		this.policy = policy;
+		this.inclusion = inclusion;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public int getLatency() {
+		return latency;
+	}
+
+	public int getWays() {
+		return ways;
+	}
+
+	public ReplacementPolicy getPolicy() {
+		return policy;
+	}
+
+	public InclusionPolicy getInclusion() {
+		return inclusion;
+	}
+}
@@ -0,0 +1,11 @@
+package logic;
+
+// Which finished producers get a common data bus when more are ready than there are buses
+public enum CdbArbitration {
+	// Most waiting consumers first, stations before buffers, then whichever finished first
+	DEPENDENTS,
+	// Earliest issued instruction first
+	OLDEST,
+	// Rotates over the producers, starting after the last one granted
+	ROUND_ROBIN
+}
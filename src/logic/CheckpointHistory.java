@@ -0,0 +1,96 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// History that keeps a full copy of the processor only every interval cycles. Any other cycle
+// is rebuilt by copying the nearest earlier checkpoint and simulating forward to it, which is
+// deterministic because the copy carries the complete machine state. Recently rebuilt states
+// are kept in a small LRU cache so scrubbing back and forth stays cheap.
+public class CheckpointHistory implements HistoryStore {
+	private final Processor processor;
+	private final int interval;
+	private final List<Processor> checkpoints = new ArrayList<>();
+	private final Map<Integer, CycleState> recent;
+	private int states;
+
+	// Last replayed processor, continuing from it is cheaper when stepping forward
+	private Processor replay;
+	private int replayState = -1;
+
+	public CheckpointHistory(Processor processor, int interval, int cachedStates) {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be at least 1: " + interval);
+		}
+		this.processor = processor;
+		this.interval = interval;
+		this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, CycleState> eldest) {
+				return size() > cachedStates;
+			}
+		};
+	}
+
+	@Override
+	public void restart(int cycle, boolean isFinished) {
+		checkpoints.clear();
+		recent.clear();
+		replay = null;
+		replayState = -1;
+		states = 0;
+		record(cycle, isFinished);
+	}
+
+	@Override
+	public void record(int cycle, boolean isFinished) {
+		if (states % interval == 0) {
+			checkpoints.add(new Processor(processor));
+		}
+		states++;
+	}
+
+	@Override
+	public void repeat(int count) {
+		for (int i = 1; i <= count; i++) {
+			if (states % interval == 0) {
+				Processor checkpoint = new Processor(processor);
+				checkpoint.skipIdleCycles(i);
+				checkpoints.add(checkpoint);
+			}
+			states++;
+		}
+	}
+
+	@Override
+	public int size() {
+		return states;
+	}
+
+	@Override
+	public CycleState get(int state) {
+		if (state < 0 || state >= states) {
+			throw new IndexOutOfBoundsException("Cycle out of range: " + state);
+		}
+		CycleState cached = recent.get(state);
+		if (cached != null) {
+			return cached;
+		}
+
+		int checkpoint = state / interval;
+		if (replay == null || state < replayState || state - replayState > state - checkpoint * interval) {
+			replay = new Processor(checkpoints.get(checkpoint));
+			replayState = checkpoint * interval;
+		}
+		while (replayState < state) {
+			replay.simulate();
+			replayState++;
+		}
+
+		CycleState cycleState = replay.snapshot();
+		recent.put(state, cycleState);
+		return cycleState;
+	}
+}
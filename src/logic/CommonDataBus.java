@@ -1,20 +1,35 @@
 package logic;
 
 public class CommonDataBus {
-	String tag;
-	String value;
+	int tag = Tags.READY;
+	long value;
+	ValueKind kind;
+	Tags tags;
 
-	public void broadcast(String tag, String value) {
+	public CommonDataBus() {
+	}
+
+	public CommonDataBus(CommonDataBus cdb) {
+		this.tag = cdb.tag;
+		this.value = cdb.value;
+		this.kind = cdb.kind;
+		this.tags = cdb.tags;
+	}
+
+	public void broadcast(int tag, long value, ValueKind kind) {
 		this.tag = tag;
 		this.value = value;
+		this.kind = kind;
 	}
 
 	public void reset() {
-		tag = null;
-		value = null;
+		tag = Tags.READY;
+		value = 0;
+		kind = null;
 	}
 
 	public String toString() {
-		return tag + " " + value;
+		String name = tag == Tags.READY ? null : tags != null ? tags.name(tag) : String.valueOf(tag);
+		return name + " " + Values.toString(value, kind);
 	}
 }
\ No newline at end of file
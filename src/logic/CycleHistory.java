@@ -0,0 +1,353 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Per-cycle history of a Processor. The state at cycle 0 is kept once, after that each cycle
+// only stores the fields that changed: station, buffer, register, fetch and CDB fields as
+// (index, value) pairs of a flat frame, plus the memory words and cache blocks Data journaled.
+// CycleStates are rebuilt on demand by replaying those changes. A run of idle cycles, in which
+// nothing but the cycle number changed, is stored once as an entry covering several states.
+public class CycleHistory implements HistoryStore {
+	private static final int STATION_FIELDS = 12;
+	private static final int BUFFER_FIELDS = 8;
+	private static final int REGISTER_FIELDS = 3;
+	private static final InstructionType[] OPERATIONS = InstructionType.values();
+	private static final ValueKind[] KINDS = ValueKind.values();
+
+	private final List<ReservationStationGroup> reservationStations;
+	private final List<LoadStoreBufferGroup> loadStoreBuffers;
+	private final RegisterFile registerFile;
+	private final Processor processor;
+	private final CommonDataBus cdb;
+	private final Data data;
+
+	private final int fetchDepth;
+	private final int frameSize;
+
+	private long[] initialFrame;
+	private Data initialData;
+	private final long[] frame; // state of the last recorded cycle
+	private final long[] scratch;
+
+	private int states;
+	// Per recorded entry: the first state it covers and where its changes end in the change arrays below
+	private int entries;
+	private int[] firstState = new int[64];
+	private int[] cycles = new int[64];
+	private boolean[] finished = new boolean[64];
+	private int[] fieldEnd = new int[64];
+	private int[] wordEnd = new int[64];
+	private int[] blockEnd = new int[64];
+
+	private int fieldCount;
+	private int[] fieldIndex = new int[256];
+	private long[] fieldValue = new long[256];
+
+	private int wordCount;
+	private int[] wordIndex = new int[64];
+	private long[] wordValue = new long[64];
+	private byte[] wordKind = new byte[64];
+
+	private int blockCount;
+	private int[] blockIndex = new int[64];
+	private int[] blockTag = new int[64]; // -1 when the block was evicted
+	private long[] blockValue = new long[64];
+	private byte[] blockKind = new byte[64];
+
+	// Last rebuilt entry and state, so stepping forward only replays the new cycles
+	private int cursor = -1;
+	private int cursorStateIndex = -1;
+	private long[] cursorFrame;
+	private Data cursorData;
+	private CycleState cursorState;
+
+	public CycleHistory(Processor processor, List<ReservationStationGroup> reservationStations, List<LoadStoreBufferGroup> loadStoreBuffers, RegisterFile registerFile, CommonDataBus cdb, Data data) {
+		this.processor = processor;
+		this.reservationStations = reservationStations;
+		this.loadStoreBuffers = loadStoreBuffers;
+		this.registerFile = registerFile;
+		this.cdb = cdb;
+		this.data = data;
+
+		int stations = 0;
+		for (ReservationStationGroup group : reservationStations) {
+			stations += group.stations.length;
+		}
+		int buffers = 0;
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			buffers += group.loadStoreBuffers.length;
+		}
+		// stations, buffers, registers, the PC, fetch buffer size and entries, and the CDB
+		fetchDepth = processor.getFetchUnit().depth();
+		frameSize = stations * STATION_FIELDS + buffers * BUFFER_FIELDS + registerFile.getSize() * REGISTER_FIELDS + 2 + fetchDepth + 3;
+		frame = new long[frameSize];
+		scratch = new long[frameSize];
+	}
+
+	@Override
+	public void restart(int cycle, boolean isFinished) {
+		states = entries = fieldCount = wordCount = blockCount = 0;
+		cursor = cursorStateIndex = -1;
+		cursorState = null;
+		encode(frame);
+		initialFrame = frame.clone();
+		initialData = new Data(data);
+		data.clearJournal();
+		data.setJournaling(true);
+		addState(cycle, isFinished);
+	}
+
+	@Override
+	public void record(int cycle, boolean isFinished) {
+		encode(scratch);
+		for (int i = 0; i < frameSize; i++) {
+			if (scratch[i] != frame[i]) {
+				frame[i] = scratch[i];
+				addField(i, scratch[i]);
+			}
+		}
+		for (int i = 0; i < data.getChangedWordCount(); i++) {
+			int word = data.getChangedWord(i);
+			addWord(word, data.peekWord(word), data.peekKind(word));
+		}
+		for (int i = 0; i < data.getChangedBlockCount(); i++) {
+			int block = data.getChangedBlock(i);
+			addBlock(block, data.peekBlockTag(block), data.peekBlockValue(block), data.peekBlockKind(block));
+		}
+		data.clearJournal();
+		addState(cycle, isFinished);
+	}
+
+	@Override
+	public void repeat(int count) {
+		states += count;
+	}
+
+	@Override
+	public int size() {
+		return states;
+	}
+
+	@Override
+	public CycleState get(int state) {
+		if (state < 0 || state >= states) {
+			throw new IndexOutOfBoundsException("Cycle out of range: " + state);
+		}
+		if (state == cursorStateIndex) {
+			return cursorState;
+		}
+		int entry = entryOf(state);
+		if (entry < cursor || cursor == -1) {
+			cursorFrame = initialFrame.clone();
+			cursorData = new Data(initialData);
+			cursor = 0;
+		}
+		for (int s = cursor + 1; s <= entry; s++) {
+			for (int i = fieldEnd[s - 1]; i < fieldEnd[s]; i++) {
+				cursorFrame[fieldIndex[i]] = fieldValue[i];
+			}
+			for (int i = wordEnd[s - 1]; i < wordEnd[s]; i++) {
+				cursorData.restoreWord(wordIndex[i], wordValue[i], kind(wordKind[i]));
+			}
+			for (int i = blockEnd[s - 1]; i < blockEnd[s]; i++) {
+				cursorData.restoreBlock(blockIndex[i], blockTag[i] != -1, blockTag[i], blockValue[i], kind(blockKind[i]));
+			}
+		}
+		cursor = entry;
+		cursorStateIndex = state;
+		cursorState = decode(cursorFrame, new Data(cursorData), cycles[entry] + state - firstState[entry], finished[entry]);
+		return cursorState;
+	}
+
+	// Last entry starting at or before state
+	private int entryOf(int state) {
+		int low = 0;
+		int high = entries - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (firstState[mid] <= state) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	private void encode(long[] out) {
+		int i = 0;
+		for (ReservationStationGroup group : reservationStations) {
+			for (ReservationStation station : group.stations) {
+				out[i++] = station.busy ? 1 : 0;
+				out[i++] = station.operation == null ? -1 : station.operation.ordinal();
+				out[i++] = station.vJ;
+				out[i++] = kind(station.vJKind);
+				out[i++] = station.vK;
+				out[i++] = kind(station.vKKind);
+				out[i++] = station.qJ;
+				out[i++] = station.qK;
+				out[i++] = station.resultValue;
+				out[i++] = kind(station.resultKind);
+				out[i++] = station.executionStartCycle;
+				out[i++] = station.executionEndCycle;
+			}
+		}
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
+				out[i++] = buffer.busy ? 1 : 0;
+				out[i++] = buffer.operation == null ? -1 : buffer.operation.ordinal();
+				out[i++] = buffer.address;
+				out[i++] = buffer.value;
+				out[i++] = kind(buffer.valueKind);
+				out[i++] = buffer.q;
+				out[i++] = buffer.executionStartCycle;
+				out[i++] = buffer.executionEndCycle;
+			}
+		}
+		for (Register register : registerFile.registers) {
+			out[i++] = register.value;
+			out[i++] = kind(register.kind);
+			out[i++] = register.tag;
+		}
+		FetchUnit fetchUnit = processor.getFetchUnit();
+		out[i++] = fetchUnit.getPc();
+		out[i++] = fetchUnit.size();
+		for (int f = 0; f < fetchDepth; f++) {
+			out[i++] = f < fetchUnit.size() ? fetchUnit.get(f) : -1;
+		}
+		out[i++] = cdb.tag;
+		out[i++] = cdb.value;
+		out[i] = kind(cdb.kind);
+	}
+
+	private CycleState decode(long[] in, Data dataCopy, int cycle, boolean isFinished) {
+		int i = 0;
+		List<ReservationStationGroup> reservationStationsCopy = new ArrayList<>();
+		for (ReservationStationGroup group : reservationStations) {
+			ReservationStationGroup groupCopy = new ReservationStationGroup(group.stations.length, group.operation);
+			for (int s = 0; s < group.stations.length; s++) {
+				ReservationStation station = groupCopy.stations[s];
+				station.id = group.stations[s].id;
+				station.tags = group.stations[s].tags;
+				station.busy = in[i++] == 1;
+				int operation = (int) in[i++];
+				station.operation = operation == -1 ? null : OPERATIONS[operation];
+				station.vJ = in[i++];
+				station.vJKind = kind((byte) in[i++]);
+				station.vK = in[i++];
+				station.vKKind = kind((byte) in[i++]);
+				station.qJ = (int) in[i++];
+				station.qK = (int) in[i++];
+				station.resultValue = in[i++];
+				station.resultKind = kind((byte) in[i++]);
+				station.executionStartCycle = (int) in[i++];
+				station.executionEndCycle = (int) in[i++];
+			}
+			reservationStationsCopy.add(groupCopy);
+		}
+
+		List<LoadStoreBufferGroup> loadStoreBuffersCopy = new ArrayList<>();
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			LoadStoreBufferGroup groupCopy = new LoadStoreBufferGroup(group.loadStoreBuffers.length, group.operation);
+			for (int b = 0; b < group.loadStoreBuffers.length; b++) {
+				LoadStoreBuffer buffer = groupCopy.loadStoreBuffers[b];
+				buffer.id = group.loadStoreBuffers[b].id;
+				buffer.tags = group.loadStoreBuffers[b].tags;
+				buffer.busy = in[i++] == 1;
+				int operation = (int) in[i++];
+				buffer.operation = operation == -1 ? null : OPERATIONS[operation];
+				buffer.address = (int) in[i++];
+				buffer.value = in[i++];
+				buffer.valueKind = kind((byte) in[i++]);
+				buffer.q = (int) in[i++];
+				buffer.executionStartCycle = (int) in[i++];
+				buffer.executionEndCycle = (int) in[i++];
+			}
+			loadStoreBuffersCopy.add(groupCopy);
+		}
+
+		RegisterFile registerFileCopy = new RegisterFile(registerFile);
+		for (Register register : registerFileCopy.registers) {
+			register.value = in[i++];
+			register.kind = kind((byte) in[i++]);
+			register.tag = (int) in[i++];
+		}
+
+		i++; // the PC is only needed to continue simulating
+		int fetched = (int) in[i++];
+		List<Instruction> instructionQueueCopy = new ArrayList<>(fetched);
+		for (int f = 0; f < fetched; f++) {
+			instructionQueueCopy.add(processor.instruction((int) in[i + f]));
+		}
+		i += fetchDepth;
+
+		CommonDataBus cdbCopy = new CommonDataBus();
+		cdbCopy.tags = cdb.tags;
+		cdbCopy.broadcast((int) in[i++], in[i++], kind((byte) in[i]));
+
+		return new CycleState(reservationStationsCopy, loadStoreBuffersCopy, cdbCopy, instructionQueueCopy, registerFileCopy, dataCopy, cycle, isFinished);
+	}
+
+	private void addState(int cycle, boolean isFinished) {
+		if (entries == cycles.length) {
+			int length = entries * 2;
+			firstState = Arrays.copyOf(firstState, length);
+			cycles = Arrays.copyOf(cycles, length);
+			finished = Arrays.copyOf(finished, length);
+			fieldEnd = Arrays.copyOf(fieldEnd, length);
+			wordEnd = Arrays.copyOf(wordEnd, length);
+			blockEnd = Arrays.copyOf(blockEnd, length);
+		}
+		firstState[entries] = states;
+		cycles[entries] = cycle;
+		finished[entries] = isFinished;
+		fieldEnd[entries] = fieldCount;
+		wordEnd[entries] = wordCount;
+		blockEnd[entries] = blockCount;
+		entries++;
+		states++;
+	}
+
+	private void addField(int index, long value) {
+		if (fieldCount == fieldIndex.length) {
+			fieldIndex = Arrays.copyOf(fieldIndex, fieldCount * 2);
+			fieldValue = Arrays.copyOf(fieldValue, fieldCount * 2);
+		}
+		fieldIndex[fieldCount] = index;
+		fieldValue[fieldCount++] = value;
+	}
+
+	private void addWord(int index, long value, ValueKind kind) {
+		if (wordCount == wordIndex.length) {
+			wordIndex = Arrays.copyOf(wordIndex, wordCount * 2);
+			wordValue = Arrays.copyOf(wordValue, wordCount * 2);
+			wordKind = Arrays.copyOf(wordKind, wordCount * 2);
+		}
+		wordIndex[wordCount] = index;
+		wordValue[wordCount] = value;
+		wordKind[wordCount++] = kind(kind);
+	}
+
+	private void addBlock(int index, int tag, long value, ValueKind kind) {
+		if (blockCount == blockIndex.length) {
+			blockIndex = Arrays.copyOf(blockIndex, blockCount * 2);
+			blockTag = Arrays.copyOf(blockTag, blockCount * 2);
+			blockValue = Arrays.copyOf(blockValue, blockCount * 2);
+			blockKind = Arrays.copyOf(blockKind, blockCount * 2);
+		}
+		blockIndex[blockCount] = index;
+		blockTag[blockCount] = tag;
+		blockValue[blockCount] = value;
+		blockKind[blockCount++] = kind(kind);
+	}
+
+	private static byte kind(ValueKind kind) {
+		return kind == null ? -1 : (byte) kind.ordinal();
+	}
+
+	private static ValueKind kind(byte kind) {
+		return kind == -1 ? null : KINDS[kind];
+	}
+}
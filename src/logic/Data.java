@@ -1,211 +1,365 @@
 package logic;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
+// Word memory behind a hierarchy of caches, L1 first. Writes go through to memory and update every
+// level holding the block, so memory always has the current value and the caches decide timing.
+//
+// Not thread-safe: read updates the caches too. Copying a Data and peekWord, peekKind and
+// getMemoryEntries only read it, so several threads may do those while nothing else uses it.
 public class Data {
-	private final Cache cache;
+	private final Cache[] levels;
+	private final InclusionPolicy[] inclusion; // per level, ignored for L1
+	private final int memoryLatency;
 	private final Memory memory;
+	// Accesses by read and write that found their block in each level or not
+	private final long[] levelHits;
+	private final long[] levelMisses;
+	private final ChangeLog changes = new ChangeLog();
 
 	public Data(int cacheSize, int blockSize, int hitLatency, int missPenalty, int memorySize) {
-		this.cache = new Cache(cacheSize, blockSize, hitLatency, missPenalty);
-		this.memory = new Memory(memorySize);
+		this(cacheSize, blockSize, hitLatency, missPenalty, memorySize, 1, ReplacementPolicy.LRU);
+	}
+
+	public Data(int cacheSize, int blockSize, int hitLatency, int missPenalty, int memorySize, int ways, ReplacementPolicy policy) {
+		this(List.of(new CacheLevel(cacheSize, blockSize, hitLatency, ways, policy, InclusionPolicy.NON_INCLUSIVE)), missPenalty, memorySize);
+	}
+
+	// Dense memory of random words, different every run
+	public Data(List<CacheLevel> cacheLevels, int memoryLatency, int memorySize) {
+		this(cacheLevels, memoryLatency, memorySize, MemoryFill.RANDOM, new Random().nextLong(), false);
+	}
+
+	// Levels from L1 down, memoryLatency is the access time when every level misses. A sparse memory
+	// only allocates the pages stores write, so memorySize may span the whole address space.
+	public Data(List<CacheLevel> cacheLevels, int memoryLatency, int memorySize, MemoryFill fill, long seed, boolean sparse) {
+		this(cacheLevels, memoryLatency, memorySize, fill, seed, sparse, null);
+	}
+
+	// Memory starting out with the words of the image, the fill only applies past its end
+	public Data(List<CacheLevel> cacheLevels, int memoryLatency, int memorySize, MemoryFill fill, long seed, boolean sparse, MemoryImage image) {
+		if (cacheLevels.isEmpty()) {
+			throw new IllegalArgumentException("At least one cache level is needed");
+		}
+		levels = new Cache[cacheLevels.size()];
+		inclusion = new InclusionPolicy[levels.length];
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = new Cache(cacheLevels.get(i));
+			inclusion[i] = cacheLevels.get(i).getInclusion();
+		}
+		this.memoryLatency = memoryLatency;
+		this.memory = new Memory(memorySize, fill, seed, sparse, image);
+		levelHits = new long[levels.length];
+		levelMisses = new long[levels.length];
+		shareJournal();
 	}
 
 	public Data(Data data) {
-		this.cache = new Cache(data.cache.cacheSize, data.cache.blockSize, data.cache.hitLatency, data.cache.missPenalty);
-		for (int tag : data.cache.cacheBlockMap.keySet()) {
-			Cache.CacheBlock block = data.cache.cacheBlockMap.get(tag);
-			this.cache.cacheBlockMap.put(tag, new Cache.CacheBlock(block.data, block.cacheTag));
+		levels = new Cache[data.levels.length];
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = new Cache(data.levels[i]);
 		}
+		inclusion = data.inclusion;
+		memoryLatency = data.memoryLatency;
+		memory = new Memory(data.memory);
+		levelHits = data.levelHits.clone();
+		levelMisses = data.levelMisses.clone();
+		shareJournal();
+	}
 
-		this.memory = new Memory(data.memory.size);
-		if (data.memory.size >= 0) System.arraycopy(data.memory.data, 0, this.memory.data, 0, data.memory.size);
+	private void shareJournal() {
+		int base = 0;
+		for (Cache level : levels) {
+			level.changes = changes;
+			level.base = base;
+			base += level.lineCount();
+		}
+	}
+
+	// First level holding the block of address, levels.length when only memory has it
+	private int hitLevel(int address) {
+		int level = 0;
+		while (level < levels.length && levels[level].find(address) == Cache.NONE) {
+			level++;
+		}
+		return level;
 	}
 
 	public int getLatency(int address) {
 		address -= address % 4;
-		return cache.isInCache(address) ? cache.hitLatency : cache.missPenalty;
+		int level = hitLevel(address);
+		return level < levels.length ? levels[level].latency : memoryLatency;
+	}
+
+	// Whether the block of address is in L1, what a non-blocking L1 looks at before tracking a miss
+	public boolean isCached(int address) {
+		address -= address % 4;
+		return levels[0].find(address) != Cache.NONE;
+	}
+
+	// L1 block number of address
+	public int getCacheBlock(int address) {
+		address -= address % 4;
+		return address / levels[0].blockSize;
+	}
+
+	public int getHitLatency() {
+		return levels[0].latency;
 	}
 
-	public String read(int address) {
+	public long read(int address) {
 		// reduce address to block index
 		address -= address % 4;
 
-		if (cache.isInCache(address)) {
-			return cache.getData(address);
-		} else {
-			String data = memory.read(address);
-			cache.writeData(address, data);
-			return data;
-		}
+		access(address, memory.read(address), memory.kind(address));
+		return memory.read(address);
 	}
 
-	public void write(int address, String data) {
+	// Kind of the word at address, does not touch the cache
+	public ValueKind kindAt(int address) {
 		address -= address % 4;
+		return memory.kind(address);
+	}
+
+	public void write(int address, long data, ValueKind kind) {
+		address -= address % 4;
+
+		memory.write(address, data, kind);
+		access(address, data, kind);
+		for (Cache level : levels) {
+			int line = level.find(address);
+			if (line != Cache.NONE) {
+				level.update(line, data, kind);
+			}
+		}
+	}
 
-		memory.write(address, data);
-		if (!cache.isInCache(address)) {
-			if (!cache.isCacheFull()) {
-				cache.writeData(address, data);
+	// Counts the access in every level down to the one that hit and brings the block up into the
+	// levels that missed, as their inclusion policies allow
+	private void access(int address, long value, ValueKind kind) {
+		int hit = hitLevel(address);
+		for (int i = 0; i < hit; i++) {
+			levelMisses[i]++;
+		}
+		if (hit < levels.length) {
+			levelHits[hit]++;
+			Cache level = levels[hit];
+			int line = level.find(address);
+			if (hit > 0 && inclusion[hit] == InclusionPolicy.EXCLUSIVE) {
+				level.invalidate(line);
 			} else {
-				// Evict a block based on least used.
-				int lruBlockIndex = cache.usageOrder.removeFirst();
-				cache.cacheBlockMap.remove(lruBlockIndex);
-				cache.writeData(address, data);
+				level.touch(line);
+			}
+		}
+		for (int i = Math.min(hit, levels.length) - 1; i >= 0; i--) {
+			if (i == 0 || inclusion[i] != InclusionPolicy.EXCLUSIVE) {
+				fill(i, address, value, kind);
 			}
 		}
 	}
 
+	private void fill(int level, int address, long value, ValueKind kind) {
+		Cache cache = levels[level];
+		cache.fill(address, value, kind);
+		if (cache.victimTag == Cache.NONE) {
+			return;
+		}
+		int victimAddress = cache.victimTag * cache.blockSize;
+		if (level > 0 && inclusion[level] == InclusionPolicy.INCLUSIVE) {
+			for (int above = 0; above < level; above++) {
+				int line = levels[above].find(victimAddress);
+				if (line != Cache.NONE) {
+					levels[above].invalidate(line);
+				}
+			}
+		}
+		int below = level + 1;
+		if (below < levels.length && inclusion[below] == InclusionPolicy.EXCLUSIVE && levels[below].find(victimAddress) == Cache.NONE) {
+			fill(below, victimAddress, cache.victimValue, cache.victimKind);
+		}
+	}
+
+	// Shape of L1
+
 	public int getCacheSize() {
-		return cache.getCacheSize();
+		return levels[0].cacheSize;
 	}
 
 	public int getCacheBlockSize() {
-		return cache.getBlockSize();
+		return levels[0].blockSize;
+	}
+
+	public int getCacheWays() {
+		return levels[0].ways;
+	}
+
+	public ReplacementPolicy getReplacementPolicy() {
+		return levels[0].policy;
+	}
+
+	public long getCacheHits() {
+		return levelHits[0];
+	}
+
+	public long getCacheMisses() {
+		return levelMisses[0];
+	}
+
+	public int getCacheLevelCount() {
+		return levels.length;
+	}
+
+	public long getCacheHits(int level) {
+		return levelHits[level];
+	}
+
+	public long getCacheMisses(int level) {
+		return levelMisses[level];
+	}
+
+	public int getMemoryLatency() {
+		return memoryLatency;
 	}
 
 	public int getMemorySize() {
 		return memory.size;
 	}
 
+	// Replaces the memory contents with the image and empties the caches. Meant for a processor
+	// that is restarted afterwards, the history does not record the change.
+	public void loadImage(MemoryImage image) {
+		memory.load(image);
+		for (Cache level : levels) {
+			level.clear();
+		}
+		Arrays.fill(levelHits, 0);
+		Arrays.fill(levelMisses, 0);
+	}
+
+	// Writes the memory as it is now, see MemoryImage for the format
+	public void saveImage(Path path) throws IOException {
+		MemoryImage.write(path, memory);
+	}
+
+	// Every word of a dense memory, the words of the pages written so far of a sparse one
 	public List<MemoryEntry> getMemoryEntries() {
 		List<MemoryEntry> entries = new ArrayList<>();
-		for (int i = 0; i < memory.size; i++) {
-			entries.add(new MemoryEntry(i * 4, memory.data[i]));
+		for (int page : memory.listedPages()) {
+			for (int i = page << Memory.PAGE_BITS; i < memory.pageEnd(page); i++) {
+				entries.add(new MemoryEntry(i * 4, Values.toString(memory.read(i), memory.kind(i))));
+			}
 		}
 		return entries;
 	}
 
 	public List<CacheEntry> getCacheEntries() {
+		return getCacheEntries(0);
+	}
+
+	public List<CacheEntry> getCacheEntries(int level) {
+		Cache cache = levels[level];
 		List<CacheEntry> entries = new ArrayList<>();
-		for (Map.Entry<Integer, Cache.CacheBlock> entry : cache.cacheBlockMap.entrySet()) {
-			entries.add(new CacheEntry(entry.getKey() * 4, entry.getValue().cacheTag, entry.getValue().data));
+		for (int line = 0; line < cache.lineCount(); line++) {
+			if (cache.tag(line) != Cache.NONE) {
+				entries.add(new CacheEntry(line * 4, cache.tag(line), Values.toString(cache.value(line), cache.kind(line))));
+			}
 		}
 		return entries;
 	}
 
 	public String toString() {
-		return "Cache:\n" + cache + "\nMemory:\n" + memory;
-	}
-
-	public String[] getMemory() {
-		return memory.data;
-	}
-
-	private static class Cache {
-		private final int blockSize;
-		private final int cacheSize;
-		private final int numBlocks;
-		private final Map<Integer, CacheBlock> cacheBlockMap; // Maps block index to cache block
-		private final LinkedList<Integer> usageOrder; // Keeps track of usage order
-		private final int hitLatency;
-		private final int missPenalty;
-
-		public Cache(int cacheSize, int blockSize, int hitLatency, int missPenalty) {
-			this.cacheSize = cacheSize;
-			this.blockSize = blockSize;
-			this.numBlocks = cacheSize / blockSize;
-			this.cacheBlockMap = new HashMap<>();
-			this.usageOrder = new LinkedList<>();
-			this.hitLatency = hitLatency;
-			this.missPenalty = missPenalty;
+		StringBuilder sb = new StringBuilder("Cache:\n").append(levels[0]);
+		for (int i = 1; i < levels.length; i++) {
+			sb.append("\nL").append(i + 1).append(":\n").append(levels[i]);
 		}
+		return sb.append("\nMemory:\n").append(memory).toString();
+	}
 
-		public int getBlockSize() {
-			return blockSize;
-		}
+	// Change journal used by CycleHistory: memory words and cache blocks modified since the last clear
 
-		public int getCacheSize() {
-			return cacheSize;
-		}
+	void setJournaling(boolean journaling) {
+		memory.changes.enabled = journaling;
+		changes.enabled = journaling;
+	}
 
-		//issue calculating tag
-		public boolean isInCache(int address) {
-			int blockIndex = (address / blockSize) % numBlocks;
-			int tag = address / blockSize;
-			return cacheBlockMap.containsKey(blockIndex) && cacheBlockMap.get(blockIndex).cacheTag == tag;
-		}
+	int getChangedWordCount() {
+		return memory.changes.size;
+	}
 
-		public boolean isCacheFull() {
-			return cacheBlockMap.size() == numBlocks;
-		}
+	int getChangedWord(int i) {
+		return memory.changes.items[i];
+	}
 
-		// Get data using address from cache
-		public String getData(int address) {
-			int blockIndex = (address / blockSize) % numBlocks;
-			// Move accessed block to the end of the usage list
-			usageOrder.remove((Integer) blockIndex);
-			usageOrder.addLast(blockIndex);
+	// Blocks are numbered across levels, L1 lines first
 
-			return cacheBlockMap.get(blockIndex).data;
-		}
+	int getChangedBlockCount() {
+		return changes.size;
+	}
 
-		// Write data to cache using address
-		public void writeData(int address, String data) {
-			int blockIndex = (address / blockSize) % numBlocks;
-			int tag = address / blockSize;
+	int getChangedBlock(int i) {
+		return changes.items[i];
+	}
 
-			if (isCacheFull() && !cacheBlockMap.containsKey(blockIndex)) {
-				// Evict the least recently used block
-				int lruBlockIndex = usageOrder.removeFirst();
-				cacheBlockMap.remove(lruBlockIndex);
-			}
+	void clearJournal() {
+		memory.changes.size = 0;
+		changes.size = 0;
+	}
 
-			// Add new block to cache and update usage order
-			cacheBlockMap.put(blockIndex, new CacheBlock(data, tag));
-			usageOrder.remove((Integer) blockIndex);
-			usageOrder.addLast(blockIndex);
-		}
+	long peekWord(int wordIndex) {
+		return memory.read(wordIndex);
+	}
 
-		public String toString() {
-			// return cache as such [index]: tag, data
-			StringBuilder sb = new StringBuilder();
-			for (Map.Entry<Integer, CacheBlock> entry : cacheBlockMap.entrySet()) {
-				if (entry.getValue() != null)
-					sb.append("[").append(entry.getKey()).append("]: ").append(entry.getValue().cacheTag).append(", ").append(entry.getValue().data).append("\n");
-			}
-			return sb.toString();
-		}
+	ValueKind peekKind(int wordIndex) {
+		return memory.kind(wordIndex);
+	}
 
-		private static class CacheBlock {
-			int cacheTag;
-			String data;
+	int peekBlockTag(int block) {
+		Cache level = levelOf(block);
+		return level.tag(block - level.base);
+	}
 
-			public CacheBlock(String data, int cacheTag) {
-				this.data = data;
-				this.cacheTag = cacheTag;
-			}
-		}
+	long peekBlockValue(int block) {
+		Cache level = levelOf(block);
+		return level.value(block - level.base);
 	}
 
-	private static class Memory {
-		private final int size;
-		private final String[] data;
+	ValueKind peekBlockKind(int block) {
+		Cache level = levelOf(block);
+		return level.kind(block - level.base);
+	}
 
-		public Memory(int size) {
-			this.size = size;
-			this.data = new String[size];
-			Random random = new Random();
-			for (int i = 0; i < size; i++) {
-				data[i] = Double.toString(random.nextDouble(100));
-			}
+	private Cache levelOf(int block) {
+		int i = levels.length - 1;
+		while (levels[i].base > block) {
+			i--;
 		}
+		return levels[i];
+	}
 
-		public void write(int address, String value) {
-			data[address] = value;
-		}
+	void restoreWord(int wordIndex, long value, ValueKind kind) {
+		memory.restore(wordIndex, value, kind);
+	}
 
-		public String read(int address) {
-			return data[address];
-		}
+	void restoreBlock(int block, boolean valid, int tag, long value, ValueKind kind) {
+		Cache level = levelOf(block);
+		level.restore(block - level.base, valid, tag, value, kind);
+	}
 
-		public String toString() {
-			// return array as such [index]: value
-			StringBuilder sb = new StringBuilder();
-			for (int i = 0; i < size; i++) {
-				sb.append("[").append(i).append("]: ").append(data[i]).append("\n");
+	static class ChangeLog {
+		boolean enabled;
+		int[] items = new int[16];
+		int size;
+
+		void add(int item) {
+			if (!enabled) {
+				return;
+			}
+			if (size == items.length) {
+				items = Arrays.copyOf(items, size * 2);
 			}
-			return sb.toString();
+			items[size++] = item;
 		}
 	}
 
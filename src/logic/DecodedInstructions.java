@@ -0,0 +1,191 @@
+package logic;
+
+import java.util.Arrays;
+
+// Parallel arrays of decoded instructions, shared by Program, TraceSource and TraceWriter. Operands are checked
+// and converted once, when an instruction is decoded into a slot:
+//   arithmetic        dest, src1, src2 = register indices
+//   DADDI, DSUBI      dest, src1 = register indices, immediate = literal word and kind
+//   loads, stores     dest = register index, src1 = memory address
+//   BNE, BEQ          dest, src1 = compared register indices, src2 = 1-based target instruction
+abstract class DecodedInstructions {
+	static final InstructionType[] OPERATIONS = InstructionType.values();
+
+	final int registerCount;
+	final int memorySize;
+	int[] operations;
+	int[] dest;
+	int[] src1;
+	int[] src2;
+	long[] immediate;
+	ValueKind[] immediateKind;
+
+	DecodedInstructions(int registerCount, int memorySize, int capacity) {
+		this.registerCount = registerCount;
+		this.memorySize = memorySize;
+		operations = new int[capacity];
+		dest = new int[capacity];
+		src1 = new int[capacity];
+		src2 = new int[capacity];
+		immediate = new long[capacity];
+		immediateKind = new ValueKind[capacity];
+	}
+
+	void resize(int capacity) {
+		operations = Arrays.copyOf(operations, capacity);
+		dest = Arrays.copyOf(dest, capacity);
+		src1 = Arrays.copyOf(src1, capacity);
+		src2 = Arrays.copyOf(src2, capacity);
+		immediate = Arrays.copyOf(immediate, capacity);
+		immediateKind = Arrays.copyOf(immediateKind, capacity);
+	}
+
+	// Moves count slots starting at from to the front
+	void shift(int from, int count) {
+		System.arraycopy(operations, from, operations, 0, count);
+		System.arraycopy(dest, from, dest, 0, count);
+		System.arraycopy(src1, from, src1, 0, count);
+		System.arraycopy(src2, from, src2, 0, count);
+		System.arraycopy(immediate, from, immediate, 0, count);
+		System.arraycopy(immediateKind, from, immediateKind, 0, count);
+	}
+
+	void copySlot(int from, DecodedInstructions target, int to) {
+		target.operations[to] = operations[from];
+		target.dest[to] = dest[from];
+		target.src1[to] = src1[from];
+		target.src2[to] = src2[from];
+		target.immediate[to] = immediate[from];
+		target.immediateKind[to] = immediateKind[from];
+	}
+
+	// Throws IllegalArgumentException naming the instruction by its 1-based number
+	void decode(int slot, long number, Instruction instruction) {
+		try {
+			decode(slot, instruction);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Instruction " + number + " (" + instruction + "): " + e.getMessage(), e);
+		}
+	}
+
+	private void decode(int slot, Instruction instruction) {
+		InstructionType operation = instruction.operation;
+		operations[slot] = operation.ordinal();
+		dest[slot] = register(instruction.dest);
+		switch (operation) {
+			case BNE, BEQ -> {
+				src1[slot] = register(instruction.src1);
+				src2[slot] = target(number(instruction.src2, "branch target"));
+			}
+			case DADDI, DSUBI -> {
+				src1[slot] = register(instruction.src1);
+				if (instruction.src2 == null || instruction.src2.isEmpty()) {
+					throw new IllegalArgumentException("missing immediate");
+				}
+				immediateKind[slot] = Values.kindOf(instruction.src2);
+				try {
+					immediate[slot] = Values.parse(instruction.src2, immediateKind[slot]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("bad immediate: " + instruction.src2);
+				}
+			}
+			default -> {
+				if (InstructionType.isMemoryOperation(operation)) {
+					src1[slot] = address(number(instruction.src1, "address"));
+				} else {
+					src1[slot] = register(instruction.src1);
+					src2[slot] = register(instruction.src2);
+				}
+			}
+		}
+	}
+
+	// Same checks for an instruction that is already in decoded form, as in binary traces
+	void decode(int slot, long number, int operation, int destIndex, int source1, long operand, ValueKind kind) {
+		try {
+			if (operation < 0 || operation >= OPERATIONS.length) {
+				throw new IllegalArgumentException("bad operation: " + operation);
+			}
+			InstructionType type = OPERATIONS[operation];
+			operations[slot] = operation;
+			dest[slot] = register(destIndex);
+			switch (type) {
+				case BNE, BEQ -> {
+					src1[slot] = register(source1);
+					src2[slot] = target(operand);
+				}
+				case DADDI, DSUBI -> {
+					src1[slot] = register(source1);
+					if (kind == null) {
+						throw new IllegalArgumentException("missing immediate");
+					}
+					immediate[slot] = operand;
+					immediateKind[slot] = kind;
+				}
+				default -> {
+					if (InstructionType.isMemoryOperation(type)) {
+						src1[slot] = address(source1);
+					} else {
+						src1[slot] = register(source1);
+						src2[slot] = register(operand);
+					}
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Instruction " + number + ": " + e.getMessage(), e);
+		}
+	}
+
+	// Rebuilds the text form, registers are shown with an F prefix
+	Instruction toInstruction(int slot) {
+		InstructionType operation = OPERATIONS[operations[slot]];
+		String destText = "F" + dest[slot];
+		return switch (operation) {
+			case BNE, BEQ -> new Instruction(operation.name(), destText, "F" + src1[slot], String.valueOf(src2[slot]));
+			case DADDI, DSUBI -> new Instruction(operation.name(), destText, "F" + src1[slot], Values.toString(immediate[slot], immediateKind[slot]));
+			default -> InstructionType.isMemoryOperation(operation)
+					? new Instruction(operation.name(), destText, String.valueOf(src1[slot]), "null")
+					: new Instruction(operation.name(), destText, "F" + src1[slot], "F" + src2[slot]);
+		};
+	}
+
+	private int register(String operand) {
+		if (operand == null || operand.length() < 2 || !Character.isLetter(operand.charAt(0))) {
+			throw new IllegalArgumentException("bad register: " + operand);
+		}
+		int index = number(operand.substring(1), "register");
+		if (index < 0 || index >= registerCount) {
+			throw new IllegalArgumentException("register out of range: " + operand);
+		}
+		return index;
+	}
+
+	private int register(long index) {
+		if (index < 0 || index >= registerCount) {
+			throw new IllegalArgumentException("register out of range: F" + index);
+		}
+		return (int) index;
+	}
+
+	private int address(int address) {
+		if (address < 0 || address - address % 4 >= memorySize) {
+			throw new IllegalArgumentException("address out of range: " + address);
+		}
+		return address;
+	}
+
+	private static int target(long target) {
+		if (target < 1 || target > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("branch target out of range: " + target);
+		}
+		return (int) target;
+	}
+
+	private static int number(String operand, String what) {
+		try {
+			return Integer.parseInt(operand);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("bad " + what + ": " + operand);
+		}
+	}
+}
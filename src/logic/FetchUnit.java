@@ -0,0 +1,68 @@
+package logic;
+
+// Program counter plus a small buffer of fetched instruction indices. Fetch fills the buffer up to
+// its depth at the end of every cycle, issue takes instructions from its head, and a taken branch
+// flushes it and moves the program counter to the target.
+public class FetchUnit {
+	private final int[] buffer;
+	private int head;
+	private int count;
+	private int pc;
+
+	public FetchUnit(int depth) {
+		if (depth < 1) {
+			throw new IllegalArgumentException("Fetch buffer depth must be at least 1: " + depth);
+		}
+		buffer = new int[depth];
+	}
+
+	public FetchUnit(FetchUnit fetchUnit) {
+		buffer = fetchUnit.buffer.clone();
+		head = fetchUnit.head;
+		count = fetchUnit.count;
+		pc = fetchUnit.pc;
+	}
+
+	void fill(InstructionSource source) {
+		while (count < buffer.length && source.has(pc)) {
+			buffer[(head + count++) % buffer.length] = pc++;
+		}
+	}
+
+	boolean isEmpty() {
+		return count == 0;
+	}
+
+	// Index of the oldest fetched instruction
+	int peek() {
+		return buffer[head];
+	}
+
+	void pop() {
+		head = (head + 1) % buffer.length;
+		count--;
+	}
+
+	void redirect(int target) {
+		head = 0;
+		count = 0;
+		pc = target;
+	}
+
+	int getPc() {
+		return pc;
+	}
+
+	int depth() {
+		return buffer.length;
+	}
+
+	int size() {
+		return count;
+	}
+
+	// Index of the i-th fetched instruction, 0 is the oldest
+	int get(int i) {
+		return buffer[(head + i) % buffer.length];
+	}
+}
@@ -0,0 +1,64 @@
+package logic;
+
+import java.util.Arrays;
+
+// Pools of functional units shared by the reservation stations of their operations, for example
+// one pipelined multiplier behind three MUL_D stations. An operation without a pool executes on
+// its own station as before, so every station acts as a private unit.
+public final class FunctionalUnits {
+	static final int NONE = -1;
+	static final FunctionalUnits EMPTY = new FunctionalUnits(emptyPools(), new int[0], new boolean[0]);
+
+	private final int[] poolOf; // per InstructionType ordinal
+	private final int[] counts; // per pool
+	private final boolean[] pipelined; // per pool, a pipelined unit accepts a new operation every cycle
+
+	private FunctionalUnits(int[] poolOf, int[] counts, boolean[] pipelined) {
+		this.poolOf = poolOf;
+		this.counts = counts;
+		this.pipelined = pipelined;
+	}
+
+	private static int[] emptyPools() {
+		int[] poolOf = new int[InstructionType.values().length];
+		Arrays.fill(poolOf, NONE);
+		return poolOf;
+	}
+
+	// New pool for the operations, taking them out of any pool they were in
+	FunctionalUnits with(int count, boolean isPipelined, InstructionType... operations) {
+		int pool = counts.length;
+		int[] poolCopy = poolOf.clone();
+		for (InstructionType operation : operations) {
+			poolCopy[operation.ordinal()] = pool;
+		}
+		int[] countCopy = Arrays.copyOf(counts, pool + 1);
+		countCopy[pool] = count;
+		boolean[] pipelinedCopy = Arrays.copyOf(pipelined, pool + 1);
+		pipelinedCopy[pool] = isPipelined;
+		return new FunctionalUnits(poolCopy, countCopy, pipelinedCopy);
+	}
+
+	FunctionalUnits withCount(int pool, int count) {
+		int[] countCopy = counts.clone();
+		countCopy[pool] = count;
+		return new FunctionalUnits(poolOf, countCopy, pipelined);
+	}
+
+	public int getPoolCount() {
+		return counts.length;
+	}
+
+	// Pool executing the operation, NONE when its stations execute on their own
+	public int getPool(InstructionType operation) {
+		return poolOf[operation.ordinal()];
+	}
+
+	public int getCount(int pool) {
+		return counts[pool];
+	}
+
+	public boolean isPipelined(int pool) {
+		return pipelined[pool];
+	}
+}
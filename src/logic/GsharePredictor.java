@@ -0,0 +1,46 @@
+package logic;
+
+// Two-bit counters indexed by the branch xor the outcomes of the last historyBits branches. The
+// history is updated when a branch resolves, not when it is predicted, so branches issued while
+// an older one is unresolved are predicted from a slightly stale history. Each still trains the
+// counter it was predicted from.
+public class GsharePredictor extends TwoBitPredictor {
+	private final int historyMask;
+	private int history;
+
+	public GsharePredictor(int size, int historyBits) {
+		super(size);
+		if (historyBits < 0 || historyBits > 30) {
+			throw new IllegalArgumentException("History bits must be between 0 and 30: " + historyBits);
+		}
+		historyMask = (1 << historyBits) - 1;
+	}
+
+	private GsharePredictor(GsharePredictor predictor) {
+		super(predictor);
+		historyMask = predictor.historyMask;
+		history = predictor.history;
+	}
+
+	@Override
+	public int entry(int pc) {
+		return (pc ^ history) & mask;
+	}
+
+	@Override
+	public void update(int entry, boolean taken) {
+		super.update(entry, taken);
+		history = ((history << 1) | (taken ? 1 : 0)) & historyMask;
+	}
+
+	@Override
+	public BranchPredictor copy() {
+		return new GsharePredictor(this);
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		history = 0;
+	}
+}
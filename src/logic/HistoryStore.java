@@ -0,0 +1,16 @@
+package logic;
+
+// Where a Processor keeps the states of the cycles it simulated
+public interface HistoryStore {
+	// Drop everything recorded so far and record the current state as the first entry
+	void restart(int cycle, boolean isFinished);
+
+	void record(int cycle, boolean isFinished);
+
+	// The last recorded state stays the same for count more cycles, only the cycle number advances
+	void repeat(int count);
+
+	int size();
+
+	CycleState get(int index);
+}
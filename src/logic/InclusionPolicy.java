@@ -0,0 +1,11 @@
+package logic;
+
+// How a cache level below L1 relates to the levels above it
+public enum InclusionPolicy {
+	// Holds every block of the levels above, evicting a block here evicts it there too
+	INCLUSIVE,
+	// Filled on misses like the levels above, but evictions do not reach them
+	NON_INCLUSIVE,
+	// Only holds blocks the level above evicted, a hit moves the block up
+	EXCLUSIVE
+}
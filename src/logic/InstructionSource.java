@@ -0,0 +1,27 @@
+package logic;
+
+// Where the fetch unit reads decoded instructions from, by position. Fields only need to be
+// available for positions that has() confirmed and that were not released since. A Program holds
+// every instruction so branches can jump anywhere, a TraceSource streams an already executed path.
+public interface InstructionSource {
+	// Whether there is an instruction at index, a streaming source may read ahead to find out
+	boolean has(int index);
+
+	InstructionType operation(int index);
+
+	int dest(int index);
+
+	int src1(int index);
+
+	int src2(int index);
+
+	long immediate(int index);
+
+	ValueKind immediateKind(int index);
+
+	// For display, null when the source no longer holds the instruction
+	Instruction instruction(int index);
+
+	// Instructions before index will not be read again
+	void release(int index);
+}
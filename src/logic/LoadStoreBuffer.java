@@ -1,10 +1,13 @@
 package logic;
 
 public class LoadStoreBuffer {
-	String address;
-	String value;
+	int address;
+	long value;
+	ValueKind valueKind;
 	String tag;
-	String q;
+	int id; // producer id, also used as the tag value consumers wait on
+	Tags tags;
+	int q; // Tag this buffer waits on, Tags.READY otherwise
 	InstructionType operation;
 	boolean busy;
 	int executionStartCycle = 0;
@@ -15,12 +18,26 @@ public class LoadStoreBuffer {
 		this.tag = tag;
 	}
 
+	public LoadStoreBuffer(LoadStoreBuffer buffer) {
+		this.tag = buffer.tag;
+		this.id = buffer.id;
+		this.tags = buffer.tags;
+		this.busy = buffer.busy;
+		this.operation = buffer.operation;
+		this.address = buffer.address;
+		this.value = buffer.value;
+		this.valueKind = buffer.valueKind;
+		this.q = buffer.q;
+		this.executionStartCycle = buffer.executionStartCycle;
+		this.executionEndCycle = buffer.executionEndCycle;
+	}
+
 	public String getAddress() {
-		return address;
+		return busy ? String.valueOf(address) : null;
 	}
 
 	public String getValue() {
-		return value;
+		return Values.toString(value, valueKind);
 	}
 
 	public String getTag() {
@@ -28,7 +45,10 @@ public class LoadStoreBuffer {
 	}
 
 	public String getQ() {
-		return q;
+		if (!busy) {
+			return null;
+		}
+		return tags != null ? tags.name(q) : String.valueOf(q);
 	}
 
 	public InstructionType getOperation() {
@@ -50,11 +70,14 @@ public class LoadStoreBuffer {
 	public void reset() {
 		busy = false;
 		operation = null;
-		address = value = q = null;
+		address = 0;
+		q = Tags.READY;
+		value = 0;
+		valueKind = null;
 		executionStartCycle = executionEndCycle = 0;
 	}
 
 	public String toString() {
-		return tag + " " + operation + " " + address + " " + value + " " + q + " " + executionStartCycle + " " + executionEndCycle + " " + busy;
+		return tag + " " + operation + " " + getAddress() + " " + getValue() + " " + getQ() + " " + executionStartCycle + " " + executionEndCycle + " " + busy;
 	}
 }
@@ -12,6 +12,18 @@ public class LoadStoreBufferGroup {
 		}
 	}
 
+	public LoadStoreBufferGroup(LoadStoreBufferGroup group) {
+		this.operation = group.operation;
+		loadStoreBuffers = new LoadStoreBuffer[group.loadStoreBuffers.length];
+		for (int i = 0; i < loadStoreBuffers.length; i++) {
+			loadStoreBuffers[i] = new LoadStoreBuffer(group.loadStoreBuffers[i]);
+		}
+	}
+
+	public InstructionType getOperation() {
+		return operation;
+	}
+
 	public LoadStoreBuffer getLoadStoreBuffer(int index) {
 		return loadStoreBuffers[index];
 	}
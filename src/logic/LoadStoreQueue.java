@@ -0,0 +1,160 @@
+package logic;
+
+// Loads and stores in program order, from issue until a load read its value and a store wrote
+// memory. The addresses are known at issue, so a load only waits for an older store to its own
+// address and takes the value from it instead of reading memory. Entries are kept oldest first
+// and compact, the queue never holds more than the buffers plus the stores waiting to commit.
+public class LoadStoreQueue {
+	static final int NONE = -1;
+
+	private final long[] order; // issue order of the instruction, also how entries are found
+	private final boolean[] store;
+	private final int[] address;
+	private final boolean[] hasValue; // stores, once the value to write is known
+	private final long[] value;
+	private final ValueKind[] kind;
+	private final boolean[] forwarded; // loads served by an older store
+	private int count;
+
+	public LoadStoreQueue(int size) {
+		order = new long[size];
+		store = new boolean[size];
+		address = new int[size];
+		hasValue = new boolean[size];
+		value = new long[size];
+		kind = new ValueKind[size];
+		forwarded = new boolean[size];
+	}
+
+	public LoadStoreQueue(LoadStoreQueue queue) {
+		order = queue.order.clone();
+		store = queue.store.clone();
+		address = queue.address.clone();
+		hasValue = queue.hasValue.clone();
+		value = queue.value.clone();
+		kind = queue.kind.clone();
+		forwarded = queue.forwarded.clone();
+		count = queue.count;
+	}
+
+	// Appends the youngest access, order must be larger than every order in the queue
+	void allocate(long issueOrder, boolean isStore, int accessAddress) {
+		if (count == order.length) {
+			throw new IllegalStateException("Load/store queue overflow");
+		}
+		order[count] = issueOrder;
+		store[count] = isStore;
+		address[count] = accessAddress;
+		hasValue[count] = false;
+		value[count] = 0;
+		kind[count] = null;
+		forwarded[count] = false;
+		count++;
+	}
+
+	// Position of the access with this issue order, NONE when it is not queued
+	int find(long issueOrder) {
+		for (int i = 0; i < count; i++) {
+			if (order[i] == issueOrder) {
+				return i;
+			}
+		}
+		return NONE;
+	}
+
+	// Youngest store older than the access at position writing the same address, NONE if there is none
+	int olderStore(int position) {
+		for (int i = position - 1; i >= 0; i--) {
+			if (store[i] && address[i] == address[position]) {
+				return i;
+			}
+		}
+		return NONE;
+	}
+
+	// Whether an older store to any address is still queued
+	boolean hasOlderStore(int position) {
+		for (int i = 0; i < position; i++) {
+			if (store[i]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Whether an older access to the same address still has to read or write memory
+	boolean hasOlderAccess(int position) {
+		for (int i = 0; i < position; i++) {
+			if (address[i] == address[position]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	void setValue(int position, long storeValue, ValueKind storeKind) {
+		hasValue[position] = true;
+		value[position] = storeValue;
+		kind[position] = storeKind;
+	}
+
+	void setForwarded(int position) {
+		forwarded[position] = true;
+	}
+
+	boolean hasValue(int position) {
+		return hasValue[position];
+	}
+
+	long value(int position) {
+		return value[position];
+	}
+
+	ValueKind kind(int position) {
+		return kind[position];
+	}
+
+	boolean isForwarded(int position) {
+		return forwarded[position];
+	}
+
+	void remove(int position) {
+		int moved = count - position - 1;
+		System.arraycopy(order, position + 1, order, position, moved);
+		System.arraycopy(store, position + 1, store, position, moved);
+		System.arraycopy(address, position + 1, address, position, moved);
+		System.arraycopy(hasValue, position + 1, hasValue, position, moved);
+		System.arraycopy(value, position + 1, value, position, moved);
+		System.arraycopy(kind, position + 1, kind, position, moved);
+		System.arraycopy(forwarded, position + 1, forwarded, position, moved);
+		count--;
+		kind[count] = null;
+	}
+
+	// Removes the oldest store, the one committing now
+	void removeOldestStore() {
+		for (int i = 0; i < count; i++) {
+			if (store[i]) {
+				remove(i);
+				return;
+			}
+		}
+		throw new IllegalStateException("No store to commit");
+	}
+
+	// Drops every access issued after issueOrder
+	void squashAfter(long issueOrder) {
+		while (count > 0 && order[count - 1] > issueOrder) {
+			count--;
+			kind[count] = null;
+		}
+	}
+
+	int size() {
+		return count;
+	}
+
+	void clear() {
+		count = 0;
+	}
+}
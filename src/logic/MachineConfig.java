@@ -0,0 +1,238 @@
+package logic;
+
+import java.util.Map;
+
+// Immutable timing parameters of one processor. Changes return a new config, so a config can be
+// shared freely between processors running on different threads.
+public final class MachineConfig {
+	private static final MachineConfig DEFAULTS = new MachineConfig(defaultLatencies(), 4, 1, 1, CdbArbitration.DEPENDENTS, 0, 1, BranchPredictorType.NOT_TAKEN, 1024, 8, FunctionalUnits.EMPTY, 0);
+
+	// Execution latency in cycles, indexed by InstructionType ordinal
+	private final int[] latencies;
+	// Instructions the fetch buffer holds ahead of issue
+	private final int fetchDepth;
+	// Instructions issued per cycle at most, in program order
+	private final int issueWidth;
+	// Results broadcast per cycle at most, and who gets a bus when more are ready
+	private final int busCount;
+	private final CdbArbitration arbitration;
+	// Reorder buffer entries, 0 for none, and branches that may be unresolved at once with one
+	private final int robSize;
+	private final int branchUnits;
+	// Consulted at issue when speculating, the table size is a power of two
+	private final BranchPredictorType predictor;
+	private final int predictorEntries;
+	private final int historyBits;
+	// Functional unit pools behind the reservation stations, none by default
+	private final FunctionalUnits units;
+	// Misses to distinct L1 blocks loads may have outstanding, 0 leaves every load its own miss
+	private final int mshrCount;
+
+	private MachineConfig(int[] latencies, int fetchDepth, int issueWidth, int busCount, CdbArbitration arbitration, int robSize, int branchUnits, BranchPredictorType predictor, int predictorEntries, int historyBits, FunctionalUnits units, int mshrCount) {
+		this.latencies = latencies;
+		this.fetchDepth = fetchDepth;
+		this.issueWidth = issueWidth;
+		this.busCount = busCount;
+		this.arbitration = arbitration;
+		this.robSize = robSize;
+		this.branchUnits = branchUnits;
+		this.predictor = predictor;
+		this.predictorEntries = predictorEntries;
+		this.historyBits = historyBits;
+		this.units = units;
+		this.mshrCount = mshrCount;
+	}
+
+	public static MachineConfig defaults() {
+		return DEFAULTS;
+	}
+
+	private static int[] defaultLatencies() {
+		int[] latencies = new int[InstructionType.values().length];
+		for (InstructionType type : InstructionType.values()) {
+			latencies[type.ordinal()] = switch (type) {
+				case DADDI, DSUBI, BNE, BEQ -> 1;
+				case MUL_D, MUL_S -> 10;
+				case DIV_D, DIV_S -> 40;
+				default -> 2;
+			};
+		}
+		return latencies;
+	}
+
+	public MachineConfig withLatency(InstructionType type, int latency) {
+		if (latency < 1) {
+			throw new IllegalArgumentException("Latency of " + type + " must be at least 1: " + latency);
+		}
+		int[] copy = latencies.clone();
+		copy[type.ordinal()] = latency;
+		return new MachineConfig(copy, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	public MachineConfig withLatencies(Map<InstructionType, Integer> latencies) {
+		MachineConfig config = this;
+		for (Map.Entry<InstructionType, Integer> entry : latencies.entrySet()) {
+			config = config.withLatency(entry.getKey(), entry.getValue());
+		}
+		return config;
+	}
+
+	public MachineConfig withFetchDepth(int fetchDepth) {
+		if (fetchDepth < 1) {
+			throw new IllegalArgumentException("Fetch depth must be at least 1: " + fetchDepth);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	// The fetch buffer is made at least this deep, so a wide machine is never starved by fetch depth alone
+	public MachineConfig withIssueWidth(int issueWidth) {
+		if (issueWidth < 1) {
+			throw new IllegalArgumentException("Issue width must be at least 1: " + issueWidth);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	public MachineConfig withBusCount(int busCount) {
+		if (busCount < 1) {
+			throw new IllegalArgumentException("Bus count must be at least 1: " + busCount);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	public MachineConfig withArbitration(CdbArbitration arbitration) {
+		if (arbitration == null) {
+			throw new IllegalArgumentException("Arbitration must not be null");
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	// 0 turns the reorder buffer off again
+	public MachineConfig withRobSize(int robSize) {
+		if (robSize < 0) {
+			throw new IllegalArgumentException("Reorder buffer size must not be negative: " + robSize);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	public MachineConfig withBranchUnits(int branchUnits) {
+		if (branchUnits < 1) {
+			throw new IllegalArgumentException("Branch units must be at least 1: " + branchUnits);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	public MachineConfig withPredictor(BranchPredictorType predictor) {
+		if (predictor == null) {
+			throw new IllegalArgumentException("Predictor must not be null");
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	public MachineConfig withPredictorEntries(int predictorEntries) {
+		if (predictorEntries < 1 || Integer.bitCount(predictorEntries) != 1) {
+			throw new IllegalArgumentException("Predictor entries must be a power of two: " + predictorEntries);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	public MachineConfig withHistoryBits(int historyBits) {
+		if (historyBits < 0 || historyBits > 30) {
+			throw new IllegalArgumentException("History bits must be between 0 and 30: " + historyBits);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	// Pool of count units executing the operations, each taking latency cycles. A pipelined unit
+	// starts a new operation every cycle, otherwise it is busy until the operation finished. The
+	// pool latency replaces what withLatency set for the operations before, a later withLatency
+	// changes the latency of one operation in the pool again.
+	public MachineConfig withUnits(int count, int latency, boolean pipelined, InstructionType... operations) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Unit count must be at least 1: " + count);
+		}
+		if (operations.length == 0) {
+			throw new IllegalArgumentException("A unit pool needs at least one operation");
+		}
+		MachineConfig config = this;
+		for (InstructionType operation : operations) {
+			if (InstructionType.isMemoryOperation(operation) || InstructionType.isBranch(operation)) {
+				throw new IllegalArgumentException(operation + " does not execute on a reservation station");
+			}
+			config = config.withLatency(operation, latency);
+		}
+		return new MachineConfig(config.latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units.with(count, pipelined, operations), mshrCount);
+	}
+
+	// Changes the size of the pool executing operation
+	public MachineConfig withUnitCount(InstructionType operation, int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("Unit count must be at least 1: " + count);
+		}
+		int pool = units.getPool(operation);
+		if (pool == FunctionalUnits.NONE) {
+			throw new IllegalArgumentException("No unit pool executes " + operation);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units.withCount(pool, count), mshrCount);
+	}
+
+	// Non-blocking L1 with this many miss status holding registers, 0 turns them off again
+	public MachineConfig withMshrCount(int mshrCount) {
+		if (mshrCount < 0) {
+			throw new IllegalArgumentException("MSHR count must not be negative: " + mshrCount);
+		}
+		return new MachineConfig(latencies, fetchDepth, issueWidth, busCount, arbitration, robSize, branchUnits, predictor, predictorEntries, historyBits, units, mshrCount);
+	}
+
+	public int getFetchDepth() {
+		return fetchDepth;
+	}
+
+	public int getIssueWidth() {
+		return issueWidth;
+	}
+
+	public int getBusCount() {
+		return busCount;
+	}
+
+	public CdbArbitration getArbitration() {
+		return arbitration;
+	}
+
+	public int getRobSize() {
+		return robSize;
+	}
+
+	public int getBranchUnits() {
+		return branchUnits;
+	}
+
+	public BranchPredictorType getPredictor() {
+		return predictor;
+	}
+
+	public int getPredictorEntries() {
+		return predictorEntries;
+	}
+
+	public int getHistoryBits() {
+		return historyBits;
+	}
+
+	public FunctionalUnits getUnits() {
+		return units;
+	}
+
+	public int getMshrCount() {
+		return mshrCount;
+	}
+
+	// A fresh predictor with empty tables
+	public BranchPredictor newPredictor() {
+		return predictor.create(predictorEntries, historyBits);
+	}
+
+	public int getLatency(InstructionType type) {
+		return latencies[type.ordinal()];
+	}
+}
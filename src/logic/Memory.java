@@ -0,0 +1,326 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// Words in fixed-size pages of primitives, grouped in chunks of 64 pages that an open-addressing
+// table of chunk numbers finds. A memory allocates a page the first time a word in it is written,
+// filling it from the memory image if there is one and from the fill policy past its end. Reading a
+// page nothing wrote yields those same words without allocating it, so a sparse memory the size of
+// the address space costs only the pages a run writes. A dense memory allocates every page past the
+// image up front, and the pages the image covers are read from the mapping until they are written.
+//
+// A copy gets its own table and shares every chunk with the memory it was made from, marking the
+// chunks shared rather than changing either table. A memory copies a shared chunk, 64 page references,
+// before it adds or replaces a page in it, and a shared page before writing it, so a snapshot costs a
+// table entry per 64 pages plus the chunks and pages written since. Marks are never cleared: after a
+// copy is dropped its source still copies each page once on the next write to it.
+//
+// Setting those volatile marks is the only change a copy makes to its source, and reads change
+// nothing, so any number of threads may read and copy one memory as long as none writes to it.
+class Memory {
+	static final int PAGE_BITS = 10;
+	static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_MASK = PAGE_SIZE - 1;
+	private static final int CHUNK_BITS = 6;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final int EMPTY = -1;
+	private static final ValueKind[] KINDS = ValueKind.values();
+	private static final byte FP = (byte) ValueKind.FP.ordinal();
+
+	final int size;
+	final MemoryFill fill;
+	final long seed;
+	final boolean sparse;
+	private MemoryImage image; // null for none
+	// per slot of the chunk table
+	private int[] chunkNumbers; // EMPTY for a free slot
+	private Chunk[] chunks;
+	private int chunkCount;
+	final Data.ChangeLog changes = new Data.ChangeLog();
+
+	private static final class Page {
+		final long[] words;
+		final byte[] kinds; // ValueKind ordinal, -1 for none
+		volatile boolean shared; // another chunk may hold the page
+
+		Page(long[] words, byte[] kinds) {
+			this.words = words;
+			this.kinds = kinds;
+		}
+	}
+
+	private static final class Chunk {
+		final Page[] pages; // null for a page not allocated yet
+		volatile boolean shared; // another table may hold the chunk
+
+		Chunk(Page[] pages) {
+			this.pages = pages;
+		}
+	}
+
+	Memory(int size, MemoryFill fill, long seed, boolean sparse, MemoryImage image) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Memory size must be at least 1: " + size);
+		}
+		this.size = size;
+		this.fill = fill;
+		this.seed = seed;
+		this.sparse = sparse;
+		load(image);
+	}
+
+	Memory(Memory memory) {
+		size = memory.size;
+		fill = memory.fill;
+		seed = memory.seed;
+		sparse = memory.sparse;
+		image = memory.image;
+		chunkNumbers = memory.chunkNumbers.clone();
+		chunks = memory.chunks.clone();
+		chunkCount = memory.chunkCount;
+		for (Chunk chunk : chunks) {
+			if (chunk != null) {
+				chunk.shared = true;
+			}
+		}
+	}
+
+	// Drops every page and starts over from the image, null for none
+	void load(MemoryImage memoryImage) {
+		if (memoryImage != null && memoryImage.getWordCount() > size) {
+			throw new IllegalArgumentException("Memory image of " + memoryImage.getWordCount() + " words does not fit in a memory of " + size);
+		}
+		image = memoryImage;
+		int pagesNeeded = (int) (((long) size + PAGE_MASK) >> PAGE_BITS);
+		int chunksNeeded = (pagesNeeded + CHUNK_MASK) >> CHUNK_BITS;
+		allocateTable(sparse ? 16 : Integer.highestOneBit(Math.max(chunksNeeded, 8)) << 2);
+		chunkCount = 0;
+		if (!sparse) {
+			int imagePages = memoryImage != null ? (int) (((long) memoryImage.getWordCount() + PAGE_MASK) >> PAGE_BITS) : 0;
+			for (int page = imagePages; page < pagesNeeded; page++) {
+				page(page);
+			}
+		}
+	}
+
+	private void allocateTable(int capacity) {
+		chunkNumbers = new int[capacity];
+		Arrays.fill(chunkNumbers, EMPTY);
+		chunks = new Chunk[capacity];
+	}
+
+	long read(int address) {
+		Objects.checkIndex(address, size);
+		Page page = allocated(address >> PAGE_BITS);
+		if (page != null) {
+			return page.words[address & PAGE_MASK];
+		}
+		return image != null && address < image.getWordCount() ? image.word(address) : initialValue(address);
+	}
+
+	ValueKind kind(int address) {
+		Objects.checkIndex(address, size);
+		Page page = allocated(address >> PAGE_BITS);
+		byte kind;
+		if (page != null) {
+			kind = page.kinds[address & PAGE_MASK];
+		} else {
+			kind = image != null && address < image.getWordCount() ? image.kind(address) : FP;
+		}
+		return kind == -1 ? null : KINDS[kind];
+	}
+
+	void write(int address, long value, ValueKind kind) {
+		restore(address, value, kind);
+		changes.add(address);
+	}
+
+	// Writes without journaling, for CycleHistory replaying its journal
+	void restore(int address, long value, ValueKind kind) {
+		Objects.checkIndex(address, size);
+		int page = address >> PAGE_BITS;
+		// owning the chunk first marks the pages it shares
+		Page[] pages = ownedChunk(page >> CHUNK_BITS).pages;
+		Page target = page(page);
+		if (target.shared) {
+			target = new Page(target.words.clone(), target.kinds.clone());
+			pages[page & CHUNK_MASK] = target;
+		}
+		target.words[address & PAGE_MASK] = value;
+		target.kinds[address & PAGE_MASK] = kind == null ? -1 : (byte) kind.ordinal();
+	}
+
+	// Slot holding the chunk, or the free slot it would go in
+	private int find(int chunk) {
+		int mask = chunkNumbers.length - 1;
+		int slot = hash(chunk) & mask;
+		while (chunkNumbers[slot] != EMPTY && chunkNumbers[slot] != chunk) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	// The page if it was allocated, null otherwise
+	private Page allocated(int page) {
+		int slot = find(page >> CHUNK_BITS);
+		return chunkNumbers[slot] == page >> CHUNK_BITS ? chunks[slot].pages[page & CHUNK_MASK] : null;
+	}
+
+	// The page, allocating and filling it on first write
+	private Page page(int page) {
+		Page found = allocated(page);
+		if (found != null) {
+			return found;
+		}
+		Page allocated = new Page(new long[PAGE_SIZE], new byte[PAGE_SIZE]);
+		fillPage(page, allocated.words, allocated.kinds);
+		ownedChunk(page >> CHUNK_BITS).pages[page & CHUNK_MASK] = allocated;
+		return allocated;
+	}
+
+	// The chunk, allocated or copied so that only this memory holds it
+	private Chunk ownedChunk(int chunk) {
+		int slot = find(chunk);
+		if (chunkNumbers[slot] != chunk) {
+			if (2 * (chunkCount + 1) > chunkNumbers.length) {
+				grow();
+				slot = find(chunk);
+			}
+			chunkNumbers[slot] = chunk;
+			chunks[slot] = new Chunk(new Page[CHUNK_SIZE]);
+			chunkCount++;
+		} else if (chunks[slot].shared) {
+			Page[] pages = chunks[slot].pages.clone();
+			for (Page page : pages) {
+				if (page != null) {
+					page.shared = true;
+				}
+			}
+			chunks[slot] = new Chunk(pages);
+		}
+		return chunks[slot];
+	}
+
+	// Contents of a page nothing wrote yet
+	private void fillPage(int page, long[] words, byte[] kinds) {
+		int first = page << PAGE_BITS;
+		int copied = image != null ? image.read(first, words, kinds, PAGE_SIZE) : 0;
+		for (int i = copied; i < PAGE_SIZE; i++) {
+			words[i] = initialValue(first + i);
+			kinds[i] = FP;
+		}
+	}
+
+	// Copies a page out without allocating it
+	void copyPage(int page, long[] words, byte[] kinds) {
+		Page found = allocated(page);
+		if (found != null) {
+			System.arraycopy(found.words, 0, words, 0, PAGE_SIZE);
+			System.arraycopy(found.kinds, 0, kinds, 0, PAGE_SIZE);
+		} else {
+			fillPage(page, words, kinds);
+		}
+	}
+
+	// Words from address 0 that are not just fill: all of a dense memory, for a sparse one up to
+	// the end of the image or of the last written page
+	int extent() {
+		if (!sparse) {
+			return size;
+		}
+		int end = image != null ? image.getWordCount() : 0;
+		for (int page : writtenPages()) {
+			end = Math.max(end, pageEnd(page));
+		}
+		return end;
+	}
+
+	private void grow() {
+		int[] oldNumbers = chunkNumbers;
+		Chunk[] oldChunks = chunks;
+		allocateTable(oldNumbers.length * 2);
+		int mask = chunkNumbers.length - 1;
+		for (int old = 0; old < oldNumbers.length; old++) {
+			if (oldNumbers[old] != EMPTY) {
+				int slot = hash(oldNumbers[old]) & mask;
+				while (chunkNumbers[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				chunkNumbers[slot] = oldNumbers[old];
+				chunks[slot] = oldChunks[old];
+			}
+		}
+	}
+
+	private static int hash(int chunk) {
+		return chunk * 0x9E3779B9 >>> 7 ^ chunk;
+	}
+
+	private long initialValue(int address) {
+		return switch (fill) {
+			case ZERO -> Values.fromDouble(0);
+			case PATTERN -> Values.fromDouble(address);
+			case RANDOM -> {
+				// splitmix64 of the seed and the address
+				long z = seed + (address + 1L) * 0x9E3779B97F4A7C15L;
+				z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+				z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+				z ^= z >>> 31;
+				yield Values.fromDouble((z >>> 11) * 0x1.0p-53 * 100);
+			}
+		};
+	}
+
+	// Allocated pages in address order, for a sparse memory the ones written so far
+	int[] writtenPages() {
+		int count = 0;
+		for (Chunk chunk : chunks) {
+			if (chunk != null) {
+				for (Page page : chunk.pages) {
+					count += page != null ? 1 : 0;
+				}
+			}
+		}
+		int[] written = new int[count];
+		int n = 0;
+		for (int slot = 0; slot < chunks.length; slot++) {
+			if (chunks[slot] != null) {
+				for (int i = 0; i < CHUNK_SIZE; i++) {
+					if (chunks[slot].pages[i] != null) {
+						written[n++] = chunkNumbers[slot] << CHUNK_BITS | i;
+					}
+				}
+			}
+		}
+		Arrays.sort(written);
+		return written;
+	}
+
+	// Pages a listing shows in address order: all of a dense memory, the written ones of a sparse one
+	int[] listedPages() {
+		if (sparse) {
+			return writtenPages();
+		}
+		int[] pages = new int[(int) (((long) size + PAGE_MASK) >> PAGE_BITS)];
+		Arrays.setAll(pages, page -> page);
+		return pages;
+	}
+
+	// One past the last address of the page inside the memory
+	int pageEnd(int page) {
+		return (int) Math.min(size, ((long) page + 1) << PAGE_BITS);
+	}
+
+	public String toString() {
+		// return array as such [index]: value
+		StringBuilder sb = new StringBuilder();
+		for (int page : listedPages()) {
+			for (int i = page << PAGE_BITS; i < pageEnd(page); i++) {
+				sb.append("[").append(i).append("]: ").append(Values.toString(read(i), kind(i))).append("\n");
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,10 @@
+package logic;
+
+// What a memory word holds before it is first written, always an FP value
+public enum MemoryFill {
+	ZERO,
+	// The word's own address, so a dump shows where every value was read from
+	PATTERN,
+	// Between 0 and 100, a function of the seed and the address so every copy agrees
+	RANDOM
+}
@@ -0,0 +1,111 @@
+package logic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Memory contents in a binary file: "TOMM", a version int and a long word count, then every word as
+// a 64-bit value, then one kind byte per word (ValueKind ordinal, -1 for none). Words belong to the
+// addresses from 0 up.
+//
+// Both directions go through FileChannel.map. Opening an image maps it without reading anything,
+// a memory reads words straight from the mapping and copies a page out only when it first writes the
+// page, so an image may be much larger than what a run reads. Reads never move a buffer position, one image may back any number
+// of processors.
+public final class MemoryImage {
+	static final int MAGIC = 0x544F4D4D; // "TOMM"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	// the words have to fit in one mapping
+	static final int MAX_WORDS = (Integer.MAX_VALUE - HEADER_SIZE) / Long.BYTES;
+
+	private final int wordCount;
+	private final LongBuffer words;
+	private final ByteBuffer kinds;
+
+	private MemoryImage(int wordCount, LongBuffer words, ByteBuffer kinds) {
+		this.wordCount = wordCount;
+		this.words = words;
+		this.kinds = kinds;
+	}
+
+	// Throws IllegalArgumentException for a file that is not an image of this version
+	public static MemoryImage open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE) {
+				throw new IllegalArgumentException(path + ": not a memory image");
+			}
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+			if (header.getInt(0) != MAGIC) {
+				throw new IllegalArgumentException(path + ": not a memory image");
+			}
+			if (header.getInt(4) != VERSION) {
+				throw new IllegalArgumentException(path + ": unsupported memory image version " + header.getInt(4));
+			}
+			long count = header.getLong(8);
+			if (count < 0 || count > MAX_WORDS || fileSize != HEADER_SIZE + (Long.BYTES + 1) * count) {
+				throw new IllegalArgumentException(path + ": memory image of " + count + " words has the wrong size");
+			}
+			// the mappings stay valid after the channel is closed
+			LongBuffer words = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, Long.BYTES * count).asLongBuffer();
+			ByteBuffer kinds = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + Long.BYTES * count, count);
+			return new MemoryImage((int) count, words, kinds);
+		}
+	}
+
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	// Copies the image words from address on into the arrays, as many as the image holds up to length
+	int read(int address, long[] wordsOut, byte[] kindsOut, int length) {
+		if (address >= wordCount) {
+			return 0;
+		}
+		int count = Math.min(length, wordCount - address);
+		words.get(address, wordsOut, 0, count);
+		kinds.get(address, kindsOut, 0, count);
+		return count;
+	}
+
+	// Word at an address below getWordCount
+	long word(int address) {
+		return words.get(address);
+	}
+
+	// ValueKind ordinal of the word at an address below getWordCount, -1 for none
+	byte kind(int address) {
+		return kinds.get(address);
+	}
+
+	// Writes the words of memory up to its extent, unwritten pages of a sparse memory hold their fill
+	static void write(Path path, Memory memory) throws IOException {
+		int count = memory.extent();
+		if (count > MAX_WORDS) {
+			throw new IllegalArgumentException("Memory of " + count + " words does not fit in an image");
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putLong(count);
+			MappedByteBuffer wordBuffer = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, (long) Long.BYTES * count);
+			MappedByteBuffer kindBuffer = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (long) Long.BYTES * count, count);
+			LongBuffer words = wordBuffer.asLongBuffer();
+			long[] pageWords = new long[Memory.PAGE_SIZE];
+			byte[] pageKinds = new byte[Memory.PAGE_SIZE];
+			for (int first = 0; first < count; first += Memory.PAGE_SIZE) {
+				memory.copyPage(first >> Memory.PAGE_BITS, pageWords, pageKinds);
+				int length = Math.min(Memory.PAGE_SIZE, count - first);
+				words.put(pageWords, 0, length);
+				kindBuffer.put(pageKinds, 0, length);
+			}
+			header.force();
+			wordBuffer.force();
+			kindBuffer.force();
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package logic;
+
+import java.util.Arrays;
+
+// Miss status holding registers of a non-blocking L1: one register per L1 block being fetched,
+// holding the cycle its data arrives. A register frees itself once that cycle has passed, so
+// nothing has to release it when the load that missed is squashed.
+public class MissStatusRegisters {
+	static final int NONE = -1;
+
+	private final int[] block; // L1 block number
+	private final int[] ready; // cycle the block is filled
+
+	public MissStatusRegisters(int count) {
+		block = new int[count];
+		ready = new int[count];
+		Arrays.fill(block, NONE);
+	}
+
+	public MissStatusRegisters(MissStatusRegisters registers) {
+		block = registers.block.clone();
+		ready = registers.ready.clone();
+	}
+
+	// Register fetching the block in this cycle, NONE when no miss to it is outstanding
+	int find(int blockNumber, int cycle) {
+		for (int i = 0; i < block.length; i++) {
+			if (block[i] == blockNumber && ready[i] >= cycle) {
+				return i;
+			}
+		}
+		return NONE;
+	}
+
+	// Holds the block until readyCycle, NONE when every register is in use
+	int allocate(int blockNumber, int readyCycle, int cycle) {
+		for (int i = 0; i < block.length; i++) {
+			if (block[i] == NONE || ready[i] < cycle) {
+				block[i] = blockNumber;
+				ready[i] = readyCycle;
+				return i;
+			}
+		}
+		return NONE;
+	}
+
+	int ready(int register) {
+		return ready[register];
+	}
+
+	void clear() {
+		Arrays.fill(block, NONE);
+	}
+}
@@ -0,0 +1,26 @@
+package logic;
+
+public class NotTakenPredictor implements BranchPredictor {
+	@Override
+	public int entry(int pc) {
+		return 0;
+	}
+
+	@Override
+	public boolean predict(int entry) {
+		return false;
+	}
+
+	@Override
+	public void update(int entry, boolean taken) {
+	}
+
+	@Override
+	public BranchPredictor copy() {
+		return this;
+	}
+
+	@Override
+	public void reset() {
+	}
+}
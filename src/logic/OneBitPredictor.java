@@ -0,0 +1,47 @@
+package logic;
+
+import java.util.Arrays;
+
+// Last outcome per table entry, branches whose index differs by a multiple of the size share one
+public class OneBitPredictor implements BranchPredictor {
+	private final boolean[] taken;
+	private final int mask;
+
+	public OneBitPredictor(int size) {
+		if (Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("Predictor size must be a power of two: " + size);
+		}
+		taken = new boolean[size];
+		mask = size - 1;
+	}
+
+	private OneBitPredictor(OneBitPredictor predictor) {
+		taken = predictor.taken.clone();
+		mask = predictor.mask;
+	}
+
+	@Override
+	public int entry(int pc) {
+		return pc & mask;
+	}
+
+	@Override
+	public boolean predict(int entry) {
+		return taken[entry];
+	}
+
+	@Override
+	public void update(int entry, boolean taken) {
+		this.taken[entry] = taken;
+	}
+
+	@Override
+	public BranchPredictor copy() {
+		return new OneBitPredictor(this);
+	}
+
+	@Override
+	public void reset() {
+		Arrays.fill(taken, false);
+	}
+}
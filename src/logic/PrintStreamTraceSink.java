@@ -0,0 +1,30 @@
+package logic;
+
+import java.io.PrintStream;
+
+// Formats every event as it happens, on the simulating thread. Fine for the demo and debugging,
+// batch runs should use a RingBufferTraceSink or no sink at all.
+public class PrintStreamTraceSink implements TraceSink {
+	private final TraceLevel level;
+	private final TraceFormatter formatter;
+	private final PrintStream out;
+	private final StringBuilder line = new StringBuilder();
+
+	public PrintStreamTraceSink(TraceLevel level, TraceFormatter formatter, PrintStream out) {
+		this.level = level;
+		this.formatter = formatter;
+		this.out = out;
+	}
+
+	@Override
+	public TraceLevel getLevel() {
+		return level;
+	}
+
+	@Override
+	public void event(TraceEvent event, int cycle, int subject, int detail, long value) {
+		line.setLength(0);
+		formatter.format(line, event, cycle, subject, detail, value);
+		out.println(line);
+	}
+}
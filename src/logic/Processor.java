@@ -1,35 +1,280 @@
 package logic;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static logic.InstructionType.*;
 
 public class Processor {
-	private final List<CycleState> cycleStates = new ArrayList<>();
-	private final List<Instruction> instructionQueue;
-	private final List<Instruction> instructions;
+	private HistoryStore history;
+	// A Program, or a TraceSource that is read as the fetch unit advances
+	private InstructionSource source;
+	private final FetchUnit fetchUnit;
 	private final List<ReservationStationGroup> reservationStations;
 	private final List<LoadStoreBufferGroup> loadStoreBuffers;
-	private final ReservationStation branchBuffer = new ReservationStation("branch");
+	// Branch stations, only the first is used without a reorder buffer since issue stalls on a branch
+	private final ReservationStation[] branchUnits;
 	private final RegisterFile registerFile; // Example: 32 registers
-	private final CommonDataBus cdb = new CommonDataBus();
+	// Bus 0 is the one shown in cycle states, all buses are empty again at the end of a cycle
+	private final CommonDataBus[] buses;
+	private final long[] busyCycles; // per bus
 	private final Data data;
-	List<ReservationStation> readyStations = new ArrayList<>();
-	List<LoadStoreBuffer> readyBuffers = new ArrayList<>();
+	private final MachineConfig config;
+	private final Tags tags;
+	private final ReservationStation[] stationsById;
+	private final LoadStoreBuffer[] buffersById;
+	// Consumer slots: 2 * id + operand for stations and buffers, then 2 per branch unit, then registers
+	private final WakeupIndex wakeupIndex;
+	private final int branchSlot;
+	private final int registerSlotBase;
+	// Finished producers waiting for the CDB, ordered by live dependent count
+	private final ReadyQueue readyQueue;
+	// Per producer, issuedCount when its instruction issued, for oldest-first arbitration
+	private final long[] issueOrder;
+	// Null unless the config has a reorder buffer. Then results commit in order, registers and
+	// memory are only written at commit, and issue continues past unresolved branches as if they
+	// were not taken. A taken branch squashes everything issued after it.
+	private final ReorderBuffer rob;
+	private final int[] entryOf; // per producer, its reorder buffer entry until it wrote back
+	private final int[] branchEntry; // per branch unit
+	// Guesses the direction of a branch at issue, issue goes on at the predicted instruction
+	private final BranchPredictor predictor;
+	private final boolean[] branchPredicted; // per branch unit
+	private final int[] predictorEntry; // per branch unit, the predictor entry it was predicted from
+	private final int[] branchIssueCycle; // per branch unit
+	private final long[] branchOrder; // per branch unit, issuedCount when it issued
+	private final BranchStatistics branchStatistics;
+	// Per functional unit pool its stations and, per unit, the first cycle it can start an operation
+	private final ReservationStation[][] poolStations;
+	private final int[][] unitFreeCycle;
+	private long unitWaitCycles;
+	// Memory accesses in program order, so loads only wait for older stores to their own address
+	private final LoadStoreQueue loadStoreQueue;
+	private long forwardedLoads;
+	private long bypassingLoads;
+	private long memoryOrderStalls;
+	// Outstanding L1 misses of loads, null without MSHRs. Miss cycles are summed over the misses and
+	// busy cycles count cycles with any miss outstanding, their ratio is the memory-level parallelism.
+	private final MissStatusRegisters missRegisters;
+	private long primaryMisses;
+	private long mergedMisses;
+	private long mshrStalls;
+	private long missCycles;
+	private long missBusyCycles;
+	private int missBusyUntil;
+	private long committedCount;
+	private long squashedCount;
+	private TraceSink trace = TraceSink.NONE;
+	private TraceLevel traceLevel = TraceLevel.OFF;
 	private boolean isBranchExecuting = false;
+	private boolean eventDriven = false;
 	private int cycle = 0;
+	private long issuedCount = 0;
 
 	public Processor(List<ReservationStationGroup> reservationStations, List<LoadStoreBufferGroup> loadStoreBuffers, Data data, List<Instruction> instructions, int registerFileSize) {
+		this(reservationStations, loadStoreBuffers, data, instructions, registerFileSize, MachineConfig.defaults());
+	}
+
+	public Processor(List<ReservationStationGroup> reservationStations, List<LoadStoreBufferGroup> loadStoreBuffers, Data data, List<Instruction> instructions, int registerFileSize, MachineConfig config) {
+		this(reservationStations, loadStoreBuffers, data, Program.decode(instructions, registerFileSize, data.getMemorySize()), registerFileSize, config);
+		history = new CycleHistory(this, reservationStations, loadStoreBuffers, registerFile, buses[0], data);
+		history.restart(cycle, isSimulationComplete());
+	}
+
+	// Runs a trace without recording history: the trace is only read once and cannot be rewound, so
+	// the processor can neither be copied nor reset. The trace must be opened for this register file
+	// and memory size.
+	public Processor(List<ReservationStationGroup> reservationStations, List<LoadStoreBufferGroup> loadStoreBuffers, Data data, TraceSource trace, int registerFileSize, MachineConfig config) {
+		this(reservationStations, loadStoreBuffers, data, (InstructionSource) trace, registerFileSize, config);
+		if (!trace.fits(registerFileSize, data.getMemorySize())) {
+			throw new IllegalArgumentException("Trace was opened for another register file or memory size");
+		}
+	}
+
+	private Processor(List<ReservationStationGroup> reservationStations, List<LoadStoreBufferGroup> loadStoreBuffers, Data data, InstructionSource source, int registerFileSize, MachineConfig config) {
+		this.config = config;
 		this.reservationStations = reservationStations;
 		this.loadStoreBuffers = loadStoreBuffers;
 		this.data = data;
-		this.instructionQueue = new ArrayList<>(instructions);
-		this.instructions = new ArrayList<>(instructions);
+		this.source = source;
+		fetchUnit = new FetchUnit(Math.max(config.getFetchDepth(), config.getIssueWidth()));
 		registerFile = new RegisterFile(registerFileSize);
+		branchUnits = new ReservationStation[config.getBranchUnits()];
+		for (int k = 0; k < branchUnits.length; k++) {
+			branchUnits[k] = new ReservationStation(branchUnits.length == 1 ? "branch" : "branch" + k);
+		}
+		buses = new CommonDataBus[config.getBusCount()];
+		for (int b = 0; b < buses.length; b++) {
+			buses[b] = new CommonDataBus();
+		}
+		busyCycles = new long[buses.length];
 
+		int producerCount = 1;
+		for (ReservationStationGroup group : reservationStations) {
+			producerCount += group.stations.length;
+		}
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			producerCount += group.loadStoreBuffers.length;
+		}
+		String[] names = new String[producerCount];
+		names[Tags.READY] = "0";
+		tags = new Tags(names);
+		stationsById = new ReservationStation[producerCount];
+		buffersById = new LoadStoreBuffer[producerCount];
+		int id = 1;
+		for (ReservationStationGroup group : reservationStations) {
+			for (ReservationStation station : group.stations) {
+				station.id = id;
+				station.tags = tags;
+				names[id] = station.tag;
+				stationsById[id++] = station;
+			}
+		}
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
+				buffer.id = id;
+				buffer.tags = tags;
+				names[id] = buffer.tag;
+				buffersById[id++] = buffer;
+			}
+		}
+		for (ReservationStation unit : branchUnits) {
+			unit.tags = tags;
+		}
+		for (CommonDataBus bus : buses) {
+			bus.tags = tags;
+		}
+		for (Register register : registerFile.registers) {
+			register.tags = tags;
+		}
+		branchSlot = 2 * producerCount;
+		registerSlotBase = branchSlot + 2 * branchUnits.length;
+		wakeupIndex = new WakeupIndex(producerCount, registerSlotBase + registerFileSize);
+		// branches never counted towards a producer's dependents
+		for (int slot = branchSlot; slot < registerSlotBase; slot++) {
+			wakeupIndex.excludeFromCount(slot);
+		}
+		readyQueue = new ReadyQueue(producerCount, config.getArbitration());
+		issueOrder = new long[producerCount];
+		rob = config.getRobSize() > 0 ? new ReorderBuffer(config.getRobSize(), registerFileSize) : null;
+		int bufferCount = 0;
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			bufferCount += group.loadStoreBuffers.length;
+		}
+		// stores leave their buffer before they commit
+		loadStoreQueue = new LoadStoreQueue(bufferCount + config.getRobSize());
+		missRegisters = config.getMshrCount() > 0 ? new MissStatusRegisters(config.getMshrCount()) : null;
+		entryOf = new int[producerCount];
+		Arrays.fill(entryOf, ReorderBuffer.NONE);
+		branchEntry = new int[branchUnits.length];
+		Arrays.fill(branchEntry, ReorderBuffer.NONE);
+		predictor = config.newPredictor();
+		branchPredicted = new boolean[branchUnits.length];
+		predictorEntry = new int[branchUnits.length];
+		branchIssueCycle = new int[branchUnits.length];
+		branchOrder = new long[branchUnits.length];
+		branchStatistics = new BranchStatistics();
+		poolStations = stationsByPool(reservationStations, config.getUnits());
+		unitFreeCycle = new int[poolStations.length][];
+		for (int p = 0; p < unitFreeCycle.length; p++) {
+			unitFreeCycle[p] = new int[config.getUnits().getCount(p)];
+		}
+		wakeupIndex.setCountListener(readyQueue);
+		fetchUnit.fill(source);
+	}
 
-		cycleStates.add(getCurrentCycleState());
+	private static ReservationStation[][] stationsByPool(List<ReservationStationGroup> reservationStations, FunctionalUnits units) {
+		ReservationStation[][] pools = new ReservationStation[units.getPoolCount()][0];
+		for (ReservationStationGroup group : reservationStations) {
+			int pool = units.getPool(group.operation);
+			if (pool != FunctionalUnits.NONE) {
+				ReservationStation[] stations = Arrays.copyOf(pools[pool], pools[pool].length + group.stations.length);
+				System.arraycopy(group.stations, 0, stations, pools[pool].length, group.stations.length);
+				pools[pool] = stations;
+			}
+		}
+		return pools;
+	}
+
+	// Deep copy of the whole simulation state, used for checkpoints. The copy records no history.
+	Processor(Processor processor) {
+		if (!(processor.source instanceof Program)) {
+			throw new IllegalStateException("A processor running a trace cannot be copied");
+		}
+		reservationStations = new ArrayList<>();
+		for (ReservationStationGroup group : processor.reservationStations) {
+			reservationStations.add(new ReservationStationGroup(group));
+		}
+		loadStoreBuffers = new ArrayList<>();
+		for (LoadStoreBufferGroup group : processor.loadStoreBuffers) {
+			loadStoreBuffers.add(new LoadStoreBufferGroup(group));
+		}
+		data = new Data(processor.data);
+		config = processor.config;
+		source = processor.source;
+		fetchUnit = new FetchUnit(processor.fetchUnit);
+		registerFile = new RegisterFile(processor.registerFile);
+		branchUnits = new ReservationStation[processor.branchUnits.length];
+		for (int k = 0; k < branchUnits.length; k++) {
+			branchUnits[k] = new ReservationStation(processor.branchUnits[k]);
+		}
+		buses = new CommonDataBus[processor.buses.length];
+		for (int b = 0; b < buses.length; b++) {
+			buses[b] = new CommonDataBus(processor.buses[b]);
+		}
+		busyCycles = processor.busyCycles.clone();
+		tags = processor.tags;
+		stationsById = new ReservationStation[processor.stationsById.length];
+		buffersById = new LoadStoreBuffer[processor.buffersById.length];
+		for (ReservationStationGroup group : reservationStations) {
+			for (ReservationStation station : group.stations) {
+				stationsById[station.id] = station;
+			}
+		}
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
+				buffersById[buffer.id] = buffer;
+			}
+		}
+		branchSlot = processor.branchSlot;
+		registerSlotBase = processor.registerSlotBase;
+		wakeupIndex = new WakeupIndex(processor.wakeupIndex);
+		readyQueue = new ReadyQueue(processor.readyQueue);
+		issueOrder = processor.issueOrder.clone();
+		rob = processor.rob != null ? new ReorderBuffer(processor.rob) : null;
+		entryOf = processor.entryOf.clone();
+		branchEntry = processor.branchEntry.clone();
+		predictor = processor.predictor.copy();
+		branchPredicted = processor.branchPredicted.clone();
+		predictorEntry = processor.predictorEntry.clone();
+		branchIssueCycle = processor.branchIssueCycle.clone();
+		branchOrder = processor.branchOrder.clone();
+		loadStoreQueue = new LoadStoreQueue(processor.loadStoreQueue);
+		forwardedLoads = processor.forwardedLoads;
+		bypassingLoads = processor.bypassingLoads;
+		memoryOrderStalls = processor.memoryOrderStalls;
+		missRegisters = processor.missRegisters != null ? new MissStatusRegisters(processor.missRegisters) : null;
+		primaryMisses = processor.primaryMisses;
+		mergedMisses = processor.mergedMisses;
+		mshrStalls = processor.mshrStalls;
+		missCycles = processor.missCycles;
+		missBusyCycles = processor.missBusyCycles;
+		missBusyUntil = processor.missBusyUntil;
+		branchStatistics = new BranchStatistics(processor.branchStatistics);
+		poolStations = stationsByPool(reservationStations, config.getUnits());
+		unitFreeCycle = new int[processor.unitFreeCycle.length][];
+		for (int p = 0; p < unitFreeCycle.length; p++) {
+			unitFreeCycle[p] = processor.unitFreeCycle[p].clone();
+		}
+		unitWaitCycles = processor.unitWaitCycles;
+		committedCount = processor.committedCount;
+		squashedCount = processor.squashedCount;
+		wakeupIndex.setCountListener(readyQueue);
+		isBranchExecuting = processor.isBranchExecuting;
+		cycle = processor.cycle;
+		issuedCount = processor.issuedCount;
 	}
 
 	public static void main(String[] args) {
@@ -48,6 +293,14 @@ public class Processor {
 
 		Data data = new Data(5, 2, 2, 10, 100);
 
+		MachineConfig config = MachineConfig.defaults()
+				.withLatency(InstructionType.DADDI, 1)
+				.withLatency(InstructionType.DSUBI, 1)
+				.withLatency(InstructionType.ADD_D, 2)
+				.withLatency(InstructionType.SUB_D, 2)
+				.withLatency(InstructionType.MUL_D, 10)
+				.withLatency(InstructionType.DIV_D, 10);
+
 		ArrayList<Instruction> instructions = new ArrayList<>();
 		instructions.add(new Instruction("SUB_D", "F1", "F1", "F1"));
 		instructions.add(new Instruction("DADDI", "F2", "F1", "5"));
@@ -55,36 +308,172 @@ public class Processor {
 		instructions.add(new Instruction("BNE", "F1", "F2", "3"));
 
 // Create processor
-		Processor processor = new Processor(reservationStations, loadStoreBuffers, data, instructions, 32);
-
-// Set latencies
-		InstructionType.setLatency(InstructionType.DADDI, 1);
-		InstructionType.setLatency(InstructionType.DSUBI, 1);
-		InstructionType.setLatency(InstructionType.ADD_D, 2);
-		InstructionType.setLatency(InstructionType.SUB_D, 2);
-		InstructionType.setLatency(InstructionType.MUL_D, 10);
-		InstructionType.setLatency(InstructionType.DIV_D, 10);
-
+		Processor processor = new Processor(reservationStations, loadStoreBuffers, data, instructions, 32, config);
 
+		processor.setTraceSink(new PrintStreamTraceSink(TraceLevel.DEBUG, processor.getTraceFormatter(), System.out));
 		processor.simulateAll();
 		System.out.println(data);
 	}
 
-	public CycleState getCycleState(int cycle) {
-		if (cycle >= 0 && cycle < cycleStates.size()) {
-			return cycleStates.get(cycle);
-		} else {
-			throw new IndexOutOfBoundsException("Cycle out of range: " + cycle);
+	// Keep a full snapshot only every interval cycles instead of per-cycle deltas. Other cycles are
+	// re-simulated from the nearest earlier snapshot when requested, and the last cachedStates
+	// rebuilt states are kept. History recorded so far is dropped, so call this before simulating.
+	public void useCheckpoints(int interval, int cachedStates) {
+		history = new CheckpointHistory(this, interval, cachedStates);
+		history.restart(cycle, isSimulationComplete());
+	}
+
+	// Events below the sink's level are never reported. Copies of this processor always trace to TraceSink.NONE.
+	public void setTraceSink(TraceSink trace) {
+		this.trace = trace;
+		traceLevel = trace.getLevel();
+	}
+
+	public TraceFormatter getTraceFormatter() {
+		return new TraceFormatter(tags, this);
+	}
+
+	private void trace(TraceEvent event, int subject, int detail, long value) {
+		if (traceLevel.includes(event.level)) {
+			trace.event(event, cycle, subject, detail, value);
 		}
 	}
 
+	// In event-driven mode simulate() jumps over the cycles in which no stage would change anything
+	// and simulates the next cycle that does. The states are exactly those of stepping cycle by cycle,
+	// the skipped cycles are recorded as repeats of the last state. Skipped cycles report no trace
+	// events. Copies of this processor always step cycle by cycle.
+	public void setEventDriven(boolean eventDriven) {
+		this.eventDriven = eventDriven;
+	}
+
+	// Stop recording cycle states, for headless runs that only need the final result.
+	// getCycleState and getCycleStates must not be used afterwards.
+	public void disableHistory() {
+		history = null;
+	}
+
+	public CycleState getCycleState(int cycle) {
+		return history.get(cycle);
+	}
+
+	public int getCycleCount() {
+		return history.size();
+	}
+
+	public int getCycle() {
+		return cycle;
+	}
+
+	// Instructions issued so far, branches included
+	public long getIssuedCount() {
+		return issuedCount;
+	}
+
+	// Instructions whose results reached the register file and memory. Without a reorder buffer
+	// nothing is squashed, so that is every issued instruction once the program finished.
+	public long getCommittedCount() {
+		return rob != null ? committedCount : issuedCount;
+	}
+
+	// Instructions issued on the wrong path and dropped again
+	public long getSquashedCount() {
+		return squashedCount;
+	}
+
+	// Wrongly predicted branches, each one squashes what was issued after it
+	public long getMispredictCount() {
+		return branchStatistics.getMispredictions();
+	}
+
+	// Per branch and total prediction counts. Branches are only predicted with a reorder buffer
+	// and a program, a trace already follows the path the program took.
+	public BranchStatistics getBranchStatistics() {
+		return branchStatistics;
+	}
+
+	// Cycles operand-ready stations spent waiting for a functional unit, summed over the stations
+	public long getUnitWaitCycles() {
+		return unitWaitCycles;
+	}
+
+	// Loads that took their value from an older store instead of memory
+	public long getForwardedLoads() {
+		return forwardedLoads;
+	}
+
+	// Loads that read memory while an older store to another address was still pending
+	public long getBypassingLoads() {
+		return bypassingLoads;
+	}
+
+	// Cycles loads and stores waited for an older access to the same address, summed over the accesses
+	public long getMemoryOrderStalls() {
+		return memoryOrderStalls;
+	}
+
+	// Load misses that took an MSHR, and those that found their block already being fetched
+	public long getPrimaryMisses() {
+		return primaryMisses;
+	}
+
+	public long getMergedMisses() {
+		return mergedMisses;
+	}
+
+	// Cycles loads waited for a free MSHR, summed over the loads
+	public long getMshrStalls() {
+		return mshrStalls;
+	}
+
+	// Average number of misses outstanding while any is, 0 before the first miss
+	public double getMemoryLevelParallelism() {
+		return missBusyCycles == 0 ? 0 : (double) missCycles / missBusyCycles;
+	}
+
+	public int getBusCount() {
+		return buses.length;
+	}
+
+	// Cycles in which the bus carried a result
+	public long getBusyCycles(int bus) {
+		return busyCycles[bus];
+	}
+
+	public double getBusUtilization(int bus) {
+		return cycle == 0 ? 0 : (double) busyCycles[bus] / cycle;
+	}
+
+	// Throws IllegalArgumentException when the instruction is malformed
 	public void addInstruction(Instruction instruction) {
-		instructionQueue.add(instruction);
-		instructions.add(instruction);
+		if (!(source instanceof Program program)) {
+			throw new IllegalStateException("Instructions cannot be added to a trace");
+		}
+		source = program.append(instruction);
+		fetchUnit.fill(source);
+	}
+
+	// Source instruction at a program position for display, null when running a trace
+	Instruction instruction(int index) {
+		return source instanceof Program program ? program.instruction(index) : null;
+	}
+
+	FetchUnit getFetchUnit() {
+		return fetchUnit;
+	}
+
+	// Instructions in the fetch buffer, oldest first
+	private List<Instruction> fetchedInstructions() {
+		List<Instruction> fetched = new ArrayList<>(fetchUnit.size());
+		for (int i = 0; i < fetchUnit.size(); i++) {
+			fetched.add(source.instruction(fetchUnit.get(i)));
+		}
+		return fetched;
 	}
 
 	private ReservationStation getFreeStation(InstructionType operation) {
-		for (ReservationStationGroup group : reservationStations) {
+		for (int g = 0; g < reservationStations.size(); g++) {
+			ReservationStationGroup group = reservationStations.get(g);
 			if (group.operation == operation) {
 				for (ReservationStation station : group.stations) {
 					if (!station.busy) {
@@ -96,8 +485,19 @@ public class Processor {
 		return null;
 	}
 
+	// Index of a free branch unit, -1 when all are busy
+	private int getFreeBranchUnit() {
+		for (int k = 0; k < branchUnits.length; k++) {
+			if (!branchUnits[k].busy) {
+				return k;
+			}
+		}
+		return -1;
+	}
+
 	private LoadStoreBuffer getFreeLoadStoreBuffer(InstructionType operation) {
-		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+		for (int g = 0; g < loadStoreBuffers.size(); g++) {
+			LoadStoreBufferGroup group = loadStoreBuffers.get(g);
 			if (group.operation == operation) {
 				for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
 					if (!buffer.busy) {
@@ -110,253 +510,431 @@ public class Processor {
 	}
 
 	private void issueStage() {
-		System.out.println("Instruction Queue: " + instructionQueue);
-		if (instructionQueue.isEmpty()) return;
-		Instruction instruction = instructionQueue.getFirst();
-		System.out.println("Instruction to issue: " + instruction);
-		try {
-			if (instruction.operation == InstructionType.BNE || instruction.operation == InstructionType.BEQ) {
-				branchBuffer.busy = true;
-				branchBuffer.operation = instruction.operation;
-				branchBuffer.resultValue = instruction.src2;
-				Register dest = registerFile.getRegister(Integer.parseInt(instruction.dest.substring(1)));
-				if (dest.getReady()) {
-					branchBuffer.qJ = "0";
-					branchBuffer.vJ = dest.getValue();
+		if (fetchUnit.isEmpty()) return;
+		int index = fetchUnit.peek();
+		InstructionType operation = source.operation(index);
+		if (isBranch(operation)) {
+			int unit = getFreeBranchUnit();
+			ReservationStation branch = branchUnits[unit];
+			branch.busy = true;
+			branch.operation = operation;
+			branch.resultValue = source.src2(index);
+			branch.resultKind = ValueKind.INT;
+			int destIndex = source.dest(index);
+			branch.qJ = operandTag(destIndex);
+			if (branch.qJ == Tags.READY) {
+				branch.vJ = operandValue(destIndex);
+				branch.vJKind = operandKind(destIndex);
+			} else {
+				wakeupIndex.await(branchSlot + 2 * unit, branch.qJ);
+			}
+			int src1Index = source.src1(index);
+			branch.qK = operandTag(src1Index);
+			if (branch.qK == Tags.READY) {
+				branch.vK = operandValue(src1Index);
+				branch.vKKind = operandKind(src1Index);
+			} else {
+				wakeupIndex.await(branchSlot + 2 * unit + 1, branch.qK);
+			}
+			fetchUnit.pop();
+			source.release(index + 1);
+			branchOrder[unit] = issuedCount++;
+			trace(TraceEvent.ISSUE, index, Tags.READY, 0);
+			if (rob != null) {
+				branchEntry[unit] = rob.allocate(operation, ReorderBuffer.NONE, unit, 0, index);
+				branchIssueCycle[unit] = cycle;
+				if (source instanceof Program) {
+					predictorEntry[unit] = predictor.entry(index);
+					branchPredicted[unit] = predictor.predict(predictorEntry[unit]);
 				} else {
-					branchBuffer.qJ = dest.getTag();
+					branchPredicted[unit] = false;
 				}
-				Register src1 = registerFile.getRegister(Integer.parseInt(instruction.src1.substring(1)));
-				if (src1.getReady()) {
-					branchBuffer.qK = "0";
-					branchBuffer.vK = src1.getValue();
-				} else {
-					branchBuffer.qK = src1.getTag();
+				if (branchPredicted[unit]) {
+					redirect((int) branch.resultValue - 1);
 				}
+			} else {
 				isBranchExecuting = true;
-				instructionQueue.removeFirst();
-				System.out.println("Instruction issued: " + instruction);
-				System.out.println("Branch buffer: " + branchBuffer);
+			}
+			return;
+		}
+		int producer;
+		if (isMemoryOperation(operation)) {
+			LoadStoreBuffer buffer = getFreeLoadStoreBuffer(operation);
+			if (buffer == null) {
+				trace(TraceEvent.ISSUE_STALL, index, 0, 0);
 				return;
 			}
-			if (isMemoryOperation(instruction.operation)) {
-				LoadStoreBuffer buffer = getFreeLoadStoreBuffer(instruction.operation);
-				if (buffer == null) {
-					System.out.println("No free load store buffer for operation: " + instruction.operation);
-					return;
+			buffer.busy = true;
+			buffer.operation = operation;
+			buffer.address = source.src1(index);
+
+			int destIndex = source.dest(index);
+			// without renaming a load also waits for an older write of its destination
+			buffer.q = rob != null && isLoad(operation) ? Tags.READY : operandTag(destIndex);
+			if (buffer.q == Tags.READY) {
+				if (operation == InstructionType.S_D) {
+					buffer.value = operandValue(destIndex);
+					buffer.valueKind = operandKind(destIndex);
 				}
-				buffer.busy = true;
-				buffer.operation = instruction.operation;
-				buffer.address = instruction.src1;
-
-				Register dest = registerFile.getRegister(Integer.parseInt(instruction.dest.substring(1)));
-				if (dest.getReady()) {
-					buffer.q = "0";
-					if (instruction.operation == InstructionType.S_D) {
-						buffer.value = dest.getValue();
-					}
+			} else {
+				wakeupIndex.await(2 * buffer.id, buffer.q);
+			}
+			if (rob != null) {
+				entryOf[buffer.id] = rob.allocate(operation, isLoad(operation) ? destIndex : ReorderBuffer.NONE, buffer.id, buffer.address, index);
+			} else if (isLoad(operation)) {
+				Register dest = registerFile.getRegister(destIndex);
+				dest.setTag(buffer.id);
+				wakeupIndex.await(registerSlotBase + destIndex, buffer.id);
+			}
+			producer = buffer.id;
+		} else {
+			ReservationStation station = getFreeStation(operation);
+			if (station == null) {
+				trace(TraceEvent.ISSUE_STALL, index, 0, 0);
+				return;
+			}
+			// Issue instruction to reservation station
+			station.busy = true;
+			station.operation = operation;
+			// Fetch source registers
+			int src1Index = source.src1(index);
+			station.qJ = operandTag(src1Index);
+			if (station.qJ == Tags.READY) {
+				station.vJ = operandValue(src1Index);
+				station.vJKind = operandKind(src1Index);
+			} else {
+				wakeupIndex.await(2 * station.id, station.qJ);
+			}
+			if (operation != InstructionType.DADDI && operation != InstructionType.DSUBI) {
+				int src2Index = source.src2(index);
+				station.qK = operandTag(src2Index);
+				if (station.qK == Tags.READY) {
+					station.vK = operandValue(src2Index);
+					station.vKKind = operandKind(src2Index);
 				} else {
-					buffer.q = dest.getTag();
-				}
-				if (instruction.operation == InstructionType.L_D || instruction.operation == InstructionType.L_S || instruction.operation == InstructionType.LW || instruction.operation == InstructionType.LD)  {
-					dest.setTag(buffer.tag);
+					wakeupIndex.await(2 * station.id + 1, station.qK);
 				}
 			} else {
-				ReservationStation station = getFreeStation(instruction.operation);
-				if (station == null) {
-					System.out.println("No free reservation station for operation: " + instruction.operation);
-					return;
-				}
-				// Issue instruction to reservation station
-				station.busy = true;
-				station.operation = instruction.operation;
-				// Fetch and validate source registers
-					Register src1 = registerFile.getRegister(Integer.parseInt(instruction.src1.substring(1)));
-					if (src1.getReady()) {
-						station.vJ = src1.getValue();
-						station.qJ = "0";
-					} else {
-						station.qJ = src1.getTag();
-					}
-					Register src2;
-					if (instruction.operation != InstructionType.DADDI && instruction.operation != InstructionType.DSUBI) {
-						src2 = registerFile.getRegister(Integer.parseInt(instruction.src2.substring(1)));
-						if (src2.getReady()) {
-							station.vK = src2.getValue();
-							station.qK = "0";
-						} else {
-							station.qK = src2.getTag();
-						}
-					} else {
-						station.vK = instruction.src2;
-						station.qK = "0";
-					}
-					Register dest = registerFile.getRegister(Integer.parseInt(instruction.dest.substring(1)));
-					dest.setTag(station.tag);
+				station.vK = source.immediate(index);
+				station.vKKind = source.immediateKind(index);
+				station.qK = Tags.READY;
 			}
+			int destIndex = source.dest(index);
+			if (rob != null) {
+				entryOf[station.id] = rob.allocate(operation, destIndex, station.id, 0, index);
+			} else {
+				Register dest = registerFile.getRegister(destIndex);
+				dest.setTag(station.id);
+				wakeupIndex.await(registerSlotBase + destIndex, station.id);
+			}
+			producer = station.id;
+		}
 
-			// Remove instruction from the queue
-			instructionQueue.removeFirst();
+		// Remove instruction from the queue
+		fetchUnit.pop();
+		source.release(index + 1);
+		issueOrder[producer] = issuedCount++;
+		if (isMemoryOperation(operation)) {
+			loadStoreQueue.allocate(issueOrder[producer], isStore(operation), source.src1(index));
+		}
 
-			System.out.println("Instruction issued: " + instruction);
+		trace(TraceEvent.ISSUE, index, producer, 0);
+	}
 
-		} catch (NumberFormatException | NullPointerException e) {
-			System.err.println("Error issuing instruction: " + instruction + " - " + e.getMessage());
+	// Producer a source register waits on, Tags.READY when its value can be read now. With a
+	// reorder buffer the value comes from the youngest uncommitted writer once it wrote back.
+	private int operandTag(int register) {
+		if (rob != null) {
+			int entry = rob.mapping(register);
+			return entry == ReorderBuffer.NONE || rob.isReady(entry) ? Tags.READY : rob.producer(entry);
 		}
+		return registerFile.getRegister(register).tag;
+	}
+
+	private long operandValue(int register) {
+		int entry = rob != null ? rob.mapping(register) : ReorderBuffer.NONE;
+		return entry != ReorderBuffer.NONE ? rob.value(entry) : registerFile.getRegister(register).value;
+	}
+
+	private ValueKind operandKind(int register) {
+		int entry = rob != null ? rob.mapping(register) : ReorderBuffer.NONE;
+		return entry != ReorderBuffer.NONE ? rob.kind(entry) : registerFile.getRegister(register).kind;
 	}
 
-	private void checkBusReservationStations() {
-		if (branchBuffer.busy && cdb.tag != null && cdb.tag.equals(branchBuffer.qJ)) {
-			branchBuffer.qJ = "0";
-			branchBuffer.vJ = cdb.value;
+	// Deliver the bus value to the consumers waiting on its tag and nothing else
+	private void broadcastResult(CommonDataBus cdb) {
+		if (cdb.tag == Tags.READY) {
+			return;
 		}
-		if (branchBuffer.busy && cdb.tag != null && cdb.tag.equals(branchBuffer.qK)) {
-			branchBuffer.qK = "0";
-			branchBuffer.vK = cdb.value;
+		int slot;
+		while ((slot = wakeupIndex.poll(cdb.tag)) != -1) {
+			wakeUp(slot, cdb);
 		}
-		if (branchBuffer.isBusy() && branchBuffer.qJ.equals("0") && branchBuffer.qK.equals("0")) {
-			branchBuffer.executionStartCycle = cycle + 1;
+	}
+
+	private void wakeUp(int slot, CommonDataBus cdb) {
+		if (slot >= registerSlotBase) {
+			Register register = registerFile.getRegister(slot - registerSlotBase);
+			register.setValue(cdb.value, cdb.kind);
+			register.setTag(Tags.READY);
+			trace(TraceEvent.REGISTER_WRITE, slot - registerSlotBase, TraceFormatter.kindCode(cdb.kind), cdb.value);
+			return;
 		}
-		for (ReservationStationGroup group : reservationStations) {
-			for (ReservationStation station : group.stations) {
-				if (!station.busy) {
-					continue;
-				}
 
-				if (station.qJ.equals("0") && station.qK.equals("0")) {
-					return;
+		ReservationStation station = slot >= branchSlot ? branchUnits[(slot - branchSlot) >> 1] : stationsById[slot >> 1];
+		if (station != null) {
+			if ((slot & 1) == 0) {
+				station.vJ = cdb.value;
+				station.vJKind = cdb.kind;
+				station.qJ = Tags.READY;
+			} else {
+				station.vK = cdb.value;
+				station.vKKind = cdb.kind;
+				station.qK = Tags.READY;
+			}
+			// a station behind a pool is started by selectStage
+			if (station.isReadyToExecute() && config.getUnits().getPool(station.operation) == FunctionalUnits.NONE) {
+				station.executionStartCycle = cycle + 1;
+				if (slot < branchSlot) {
+					station.executionEndCycle = cycle + config.getLatency(station.operation);
 				}
+			}
+			return;
+		}
 
-				if (cdb.tag == null) {
-					return;
-				}
+		LoadStoreBuffer buffer = buffersById[slot >> 1];
+		// only for stores
+		if (buffer.operation == InstructionType.S_D) {
+			buffer.value = cdb.value;
+			buffer.valueKind = cdb.kind;
+		}
+		buffer.q = Tags.READY;
+		startAccess(buffer);
+	}
 
-				if (cdb.tag.equals(station.qJ)) {
-					station.vJ = cdb.value;
-					station.qJ = "0";
-				}
-				if (cdb.tag.equals(station.qK)) {
-					station.vK = cdb.value;
-					station.qK = "0";
+	// Starts the access next cycle unless an older access to the same address has to go first. A
+	// load behind a store to its address takes the store's value once it is known, without reading
+	// memory. Called again every cycle while the access waits.
+	private void startAccess(LoadStoreBuffer buffer) {
+		int position = loadStoreQueue.find(issueOrder[buffer.id]);
+		int end = cycle + config.getLatency(buffer.operation) + data.getLatency(buffer.address);
+		if (isStore(buffer.operation)) {
+			loadStoreQueue.setValue(position, buffer.value, buffer.valueKind);
+			// with a reorder buffer memory is written at commit, which is in program order
+			if (rob == null && loadStoreQueue.hasOlderAccess(position)) {
+				memoryOrderStalls++;
+				return;
+			}
+		} else {
+			int store = loadStoreQueue.olderStore(position);
+			if (store != LoadStoreQueue.NONE) {
+				if (!loadStoreQueue.hasValue(store)) {
+					memoryOrderStalls++;
+					return;
 				}
-
-				if (station.qJ.equals("0") && station.qK.equals("0")) {
-					station.executionStartCycle = cycle + 1;
-					station.executionEndCycle = cycle + getLatency(station.operation);
+				buffer.value = loadStoreQueue.value(store);
+				buffer.valueKind = loadStoreQueue.kind(store);
+				loadStoreQueue.setForwarded(position);
+				forwardedLoads++;
+				buffer.executionStartCycle = cycle + 1;
+				buffer.executionEndCycle = cycle + config.getLatency(buffer.operation);
+				return;
+			}
+			// a load missing L1 needs an MSHR, stores write through without one
+			if (missRegisters != null && !data.isCached(buffer.address)) {
+				end = trackMiss(buffer, end);
+				if (end == MissStatusRegisters.NONE) {
+					mshrStalls++;
+					return;
 				}
 			}
+			if (loadStoreQueue.hasOlderStore(position)) {
+				bypassingLoads++;
+			}
 		}
+		buffer.executionStartCycle = cycle + 1;
+		buffer.executionEndCycle = end;
 	}
 
-	private void checkBusLoadStoreBuffer() {
+	// End cycle of a load missing L1 that would otherwise end at missEnd. A miss to a block already
+	// being fetched merges into its MSHR and gets the data with it, NONE when no MSHR is free.
+	private int trackMiss(LoadStoreBuffer buffer, int missEnd) {
+		int block = data.getCacheBlock(buffer.address);
+		int register = missRegisters.find(block, cycle);
+		if (register != MissStatusRegisters.NONE) {
+			mergedMisses++;
+			return Math.max(missRegisters.ready(register), cycle + config.getLatency(buffer.operation) + data.getHitLatency());
+		}
+		if (missRegisters.allocate(block, missEnd, cycle) == MissStatusRegisters.NONE) {
+			return MissStatusRegisters.NONE;
+		}
+		primaryMisses++;
+		missCycles += missEnd - cycle;
+		int from = Math.max(cycle, missBusyUntil);
+		if (missEnd > from) {
+			missBusyCycles += missEnd - from;
+			missBusyUntil = missEnd;
+		}
+		return missEnd;
+	}
 
-		for (LoadStoreBufferGroup group : loadStoreBuffers) {
-			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
-				if (!buffer.busy) {
-					continue;
-				}
+	// Continue from the instruction at index. A trace already holds the instructions the program went on with.
+	private void redirect(int index) {
+		if (source instanceof Program program) {
+			fetchUnit.redirect(Math.min(index, program.size()));
+		}
+	}
 
-				if (buffer.q.equals("0")) {
-					continue;
-				}
+	private void resolveBranch(int unit) {
+		ReservationStation branch = branchUnits[unit];
+		double difference = Values.toDouble(branch.vJ, branch.vJKind) - Values.toDouble(branch.vK, branch.vKKind);
+		boolean taken = branch.operation == InstructionType.BNE ? difference != 0 : difference == 0;
+		int target = (int) branch.resultValue;
+		trace(TraceEvent.BRANCH_RESOLVED, target, taken ? 1 : 0, 0);
+		branch.reset();
+		if (rob == null) {
+			isBranchExecuting = false;
+			if (taken) {
+				// continue from the 1-based target instruction
+				redirect(target - 1);
+			}
+			return;
+		}
+		int entry = branchEntry[unit];
+		branchEntry[unit] = ReorderBuffer.NONE;
+		rob.complete(entry, taken ? 1 : 0, ValueKind.INT);
+		// a trace already went on with the right instruction
+		if (!(source instanceof Program)) {
+			return;
+		}
+		int index = rob.index(entry);
+		predictor.update(predictorEntry[unit], taken);
+		boolean mispredicted = taken != branchPredicted[unit];
+		int lost = cycle - branchIssueCycle[unit];
+		branchStatistics.record(index, mispredicted, lost);
+		if (mispredicted) {
+			trace(TraceEvent.MISPREDICT, index, lost, 0);
+			squashAfter(entry);
+			loadStoreQueue.squashAfter(branchOrder[unit]);
+			redirect(taken ? target - 1 : index + 1);
+		}
+	}
 
-				if (cdb.tag == null) {
-					continue;
+	// Drops every instruction issued after entry, youngest first so the rename map unwinds in order
+	private void squashAfter(int entry) {
+		while (rob.youngest() != entry) {
+			int squashed = rob.youngest();
+			int producer = rob.producer(squashed);
+			if (isBranch(rob.operation(squashed))) {
+				if (branchEntry[producer] == squashed) {
+					branchEntry[producer] = ReorderBuffer.NONE;
+					wakeupIndex.cancel(branchSlot + 2 * producer);
+					wakeupIndex.cancel(branchSlot + 2 * producer + 1);
+					branchUnits[producer].reset();
 				}
-
-				//reset bus
-				if (cdb.tag.equals(buffer.q)) {
-					// only for stores
-					if (buffer.operation == InstructionType.S_D) {
-						buffer.value = cdb.value;
-					}
-					// for both
-					buffer.q = "0";
+			} else if (entryOf[producer] == squashed) {
+				// still executing or waiting for a bus, so nothing else refers to it
+				entryOf[producer] = ReorderBuffer.NONE;
+				wakeupIndex.cancel(2 * producer);
+				wakeupIndex.cancel(2 * producer + 1);
+				if (readyQueue.contains(producer)) {
+					readyQueue.remove(producer);
 				}
-
-				if (buffer.q.equals("0")) {
-					buffer.executionStartCycle = cycle + 1;
-					buffer.executionEndCycle = cycle + getLatency(buffer.operation) + data.getLatency(Integer.parseInt(buffer.address));
+				if (stationsById[producer] != null) {
+					stationsById[producer].reset();
+				} else {
+					buffersById[producer].reset();
 				}
 			}
+			trace(TraceEvent.SQUASH, rob.index(squashed), 0, 0);
+			rob.squashYoungest();
+			squashedCount++;
 		}
 	}
 
-	private void checkBusRegisterFile() {
-		if (cdb.tag == null) {
-			return;
-		}
-
-		for (Register register : registerFile.registers) {
-			if (cdb.tag.equals(register.tag)) {
-				register.setValue(cdb.value);
-				register.setTag(null);
-				System.out.println("Broadcasting result to register: " + register.getName());
+	// Writes the oldest finished results to the register file and memory, up to the issue width per cycle
+	private void commitStage() {
+		for (int n = 0; n < config.getIssueWidth() && !rob.isEmpty() && rob.isReady(rob.head()); n++) {
+			int entry = rob.head();
+			InstructionType operation = rob.operation(entry);
+			if (isStore(operation)) {
+				data.write(rob.address(entry), rob.value(entry), rob.kind(entry));
+				loadStoreQueue.removeOldestStore();
+			} else if (rob.dest(entry) != ReorderBuffer.NONE) {
+				registerFile.getRegister(rob.dest(entry)).setValue(rob.value(entry), rob.kind(entry));
+				trace(TraceEvent.REGISTER_WRITE, rob.dest(entry), TraceFormatter.kindCode(rob.kind(entry)), rob.value(entry));
 			}
+			trace(TraceEvent.COMMIT, rob.index(entry), 0, 0);
+			rob.retire();
+			committedCount++;
 		}
 	}
 
-	private void executeStage() {
-		// at end of execution update destination register (ASK ALY)
-		System.out.println("Branch buffer: " + branchBuffer);
-		if (branchBuffer.busy && branchBuffer.isReadyToExecute()) {
-			if (branchBuffer.operation == InstructionType.BNE) {
-				if (Double.parseDouble(branchBuffer.vJ) - Double.parseDouble(branchBuffer.vK) != 0) {
-					// put instructions from array to queue
-					instructionQueue.clear();
-					// put in instruction queue from instruction starting from branchBuffer.address
-					for (int i = Integer.parseInt(branchBuffer.resultValue) - 1; i < instructions.size(); i++) {
-						instructionQueue.add(instructions.get(i));
-					}
+	// Gives the free units of each pool to operand-ready stations, oldest instruction first. Runs at
+	// the end of the cycle, so a station starts next cycle like one without a pool.
+	private void selectStage() {
+		for (int p = 0; p < poolStations.length; p++) {
+			ReservationStation[] stations = poolStations[p];
+			int[] freeCycle = unitFreeCycle[p];
+			for (int u = 0; u < freeCycle.length; u++) {
+				if (freeCycle[u] > cycle + 1) {
+					continue;
 				}
-			} else if (branchBuffer.operation == InstructionType.BEQ) {
-				if (Double.parseDouble(branchBuffer.vJ) - Double.parseDouble(branchBuffer.vK) == 0) {
-					// put instructions from array to queue
-					instructionQueue.clear();
-					// put in instruction queue from instruction starting from branchBuffer.address
-					for (int i = Integer.parseInt(branchBuffer.resultValue) - 1; i < instructions.size(); i++) {
-						instructionQueue.add(instructions.get(i));
+				ReservationStation oldest = null;
+				for (ReservationStation station : stations) {
+					if (station.busy && station.executionStartCycle == 0 && station.isReadyToExecute()
+							&& (oldest == null || issueOrder[station.id] < issueOrder[oldest.id])) {
+						oldest = station;
 					}
 				}
+				if (oldest == null) {
+					break;
+				}
+				int latency = config.getLatency(oldest.operation);
+				oldest.executionStartCycle = cycle + 1;
+				oldest.executionEndCycle = cycle + latency;
+				freeCycle[u] = config.getUnits().isPipelined(p) ? cycle + 2 : cycle + latency + 1;
+			}
+			for (ReservationStation station : stations) {
+				if (station.busy && station.executionStartCycle == 0 && station.isReadyToExecute()) {
+					unitWaitCycles++;
+				}
+			}
+		}
+	}
+
+	private void executeStage() {
+		for (int k = 0; k < branchUnits.length; k++) {
+			ReservationStation branch = branchUnits[k];
+			if (branch.busy && branch.isReadyToExecute()) {
+				resolveBranch(k);
 			}
-			isBranchExecuting = false;
-			System.out.println("Executing Branch buffer: " + branchBuffer);
-			branchBuffer.reset();
-			return;
 		}
 		for (ReservationStationGroup group : reservationStations) {
 			for (ReservationStation station : group.stations) {
 				if (station.busy && station.isReadyToExecute()) {
 					if (station.executionStartCycle == 0) {
-						station.executionStartCycle = cycle + 1;
-						station.executionEndCycle = cycle + getLatency(station.operation);
+						// a station behind a pool waits for selectStage to give it a unit
+						if (config.getUnits().getPool(station.operation) == FunctionalUnits.NONE) {
+							station.executionStartCycle = cycle + 1;
+							station.executionEndCycle = cycle + config.getLatency(station.operation);
+						}
 						continue;
 					}
 					if (station.executionStartCycle <= cycle && station.executionEndCycle > cycle) {
-						System.out.println("Executing instruction: " + station);
+						trace(TraceEvent.EXECUTE, station.id, 0, 0);
 					}
 					if (station.executionEndCycle == cycle) {
-						switch (InstructionType.valueOf(station.operation.toString())) {
-							case ADD_D, ADD_S:
-								station.resultValue = String.valueOf(Double.parseDouble(station.vJ) + Double.parseDouble(station.vK));
-								break;
-							case SUB_D, SUB_S, DSUBI:
-								station.resultValue = String.valueOf(Double.parseDouble(station.vJ) - Double.parseDouble(station.vK));
-								break;
-							case MUL_D, MUL_S:
-								station.resultValue = String.valueOf(Double.parseDouble(station.vJ) * Double.parseDouble(station.vK));
-								break;
-							case DIV_D, DIV_S:
-								station.resultValue = String.valueOf(Double.parseDouble(station.vJ) / Double.parseDouble(station.vK));
-								break;
-							case DADDI:
-								station.resultValue = String.valueOf(Double.parseDouble(station.vJ) + Double.parseDouble(station.vK));
+						switch (station.operation) {
+							case ADD_D, ADD_S, SUB_D, SUB_S, DSUBI, MUL_D, MUL_S, DIV_D, DIV_S, DADDI:
+								station.resultValue = Values.compute(station.operation, station.vJ, station.vJKind, station.vK, station.vKKind);
+								station.resultKind = Values.resultKind(station.operation, station.vJKind, station.vKKind);
 								break;
 
 							default:
 								break;
 						}
-						System.out.println("Execution finished for station: " + station);
+						trace(TraceEvent.EXECUTE_DONE, station.id, TraceFormatter.kindCode(station.resultKind), station.resultValue);
 					}
 				}
 			}
@@ -364,108 +942,52 @@ public class Processor {
 
 		for (LoadStoreBufferGroup group : loadStoreBuffers) {
 			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
-				if (buffer.busy && buffer.q.equals("0")) {
-					System.out.println("Buffer: " + buffer);
+				if (buffer.busy && buffer.q == Tags.READY) {
 					if (buffer.executionStartCycle == 0) {
-						buffer.executionStartCycle = cycle + 1;
-						buffer.executionEndCycle = cycle + getLatency(buffer.getOperation()) + data.getLatency(Integer.parseInt(buffer.address));
+						startAccess(buffer);
 						continue;
 					}
 					if (buffer.executionStartCycle <= cycle && buffer.executionEndCycle > cycle) {
-						System.out.println("Executing instruction: " + buffer);
+						trace(TraceEvent.EXECUTE, buffer.id, 0, 0);
 					}
 					if (buffer.executionEndCycle == cycle) {
 						switch (InstructionType.valueOf(buffer.operation.toString())) {
-							case L_D, L_S, LW, LD:
-								buffer.value = data.read(Integer.parseInt(buffer.address));
+							case L_D, L_S, LW, LD: {
+								int position = loadStoreQueue.find(issueOrder[buffer.id]);
+								if (!loadStoreQueue.isForwarded(position)) {
+									buffer.value = data.read(buffer.address);
+									buffer.valueKind = data.kindAt(buffer.address);
+								}
+								loadStoreQueue.remove(position);
 								break;
+							}
 							case S_D, S_S, SW, SD:
-								data.write(Integer.parseInt(buffer.address), buffer.value);
+								if (rob != null) {
+									// memory is written when the store commits
+									rob.complete(entryOf[buffer.id], buffer.value, buffer.valueKind);
+									entryOf[buffer.id] = ReorderBuffer.NONE;
+								} else {
+									data.write(buffer.address, buffer.value, buffer.valueKind);
+									loadStoreQueue.remove(loadStoreQueue.find(issueOrder[buffer.id]));
+								}
 								break;
 							default:
 								break;
 						}
-						System.out.println("Execution finished for buffer: " + buffer);
+						trace(TraceEvent.EXECUTE_DONE, buffer.id, TraceFormatter.kindCode(buffer.valueKind), buffer.value);
 					}
 				}
 			}
 		}
 	}
 
-	private int countDependencies(ReservationStation station) {
-		int dependencies = 0;
-
-		// Check other reservation stations
-		for (ReservationStationGroup group : reservationStations) {
-			for (ReservationStation s : group.stations) {
-				if (s.qJ != null && s.qJ.equals(station.tag)) {
-					dependencies++;
-				}
-				if (s.qK != null && s.qK.equals(station.tag)) {
-					dependencies++;
-				}
-			}
-		}
-		// check load store buffers
-		for (LoadStoreBufferGroup group : loadStoreBuffers) {
-			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
-				if (buffer.q != null && buffer.q.equals(station.tag)) {
-					dependencies++;
-				}
-			}
-		}
-
-		// Check registers
-		for (int i = 0; i < registerFile.getSize(); i++) {
-			Register reg = registerFile.getRegister(i);
-			if (reg.getTag() != null && reg.getTag().equals(station.tag)) {
-				dependencies++;
-			}
-		}
-
-		return dependencies;
-	}
-
-	private int countDependencies(LoadStoreBuffer buffer) {
-		int dependencies = 0;
-
-		// Check other reservation stations
-		for (ReservationStationGroup group : reservationStations) {
-			for (ReservationStation s : group.stations) {
-				if (s.qJ != null && s.qJ.equals(buffer.tag)) {
-					dependencies++;
-				}
-				if (s.qK != null && s.qK.equals(buffer.tag)) {
-					dependencies++;
-				}
-			}
-		}
-		// check load store buffers
-		for (LoadStoreBufferGroup group : loadStoreBuffers) {
-			for (LoadStoreBuffer b : group.loadStoreBuffers) {
-				if (b.q != null && b.q.equals(buffer.tag)) {
-					dependencies++;
-				}
-			}
-		}
-
-		// Check registers
-		for (int i = 0; i <registerFile.getSize(); i++) {
-			Register reg = registerFile.getRegister(i);
-			if (reg.getTag() != null && reg.getTag().equals(buffer.tag)) {
-				dependencies++;
-			}
-		}
-
-		return dependencies;
-	}
-
 	private void writeResultStage() {
 		// Collect all stations ready to write their results
 		for (ReservationStationGroup group : reservationStations) {
 			for (ReservationStation station : group.stations) {
-				if (station.executionEndCycle == cycle - 1 && station.busy) {
-					readyStations.add(station); // Add ready station
+				// executionEndCycle is still 0 for a station that has not started, which matches in cycle 1
+				if (station.executionEndCycle == cycle - 1 && station.busy && station.executionStartCycle != 0) {
+					readyQueue.add(station.id, wakeupIndex.count(station.id), 0, issueOrder[station.id]); // Add ready station
 				}
 			}
 		}
@@ -473,9 +995,9 @@ public class Processor {
 		// only for loads
 		for (LoadStoreBufferGroup group : loadStoreBuffers) {
 			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
-				if (buffer.executionEndCycle == cycle - 1 && buffer.busy) {
+				if (buffer.executionEndCycle == cycle - 1 && buffer.busy && buffer.executionStartCycle != 0) {
 					if (buffer.operation == InstructionType.L_D || buffer.operation == InstructionType.L_S || buffer.operation == InstructionType.LW || buffer.operation == InstructionType.LD) {
-						readyBuffers.add(buffer); // Add ready station
+						readyQueue.add(buffer.id, wakeupIndex.count(buffer.id), 1, issueOrder[buffer.id]); // Add ready buffer
 					}
 				}
 				if (buffer.executionEndCycle == cycle  && buffer.busy) {
@@ -486,104 +1008,62 @@ public class Processor {
 			}
 		}
 
-		if (!readyStations.isEmpty() || !readyBuffers.isEmpty()) {
-			ReservationStation prioritizedStation = null;
-			LoadStoreBuffer prioritizedBuffer = null;
-			int maxDependenciesStation = -1;
-			int maxDependenciesBuffer = -1;
-
-			if (!readyStations.isEmpty()) {
-				prioritizedStation = readyStations.getFirst();
-				for (ReservationStation station : readyStations) {
-					int dependencies = countDependencies(station);
-					if (dependencies > maxDependenciesStation) {
-						maxDependenciesStation = dependencies;
-						prioritizedStation = station;
-					}
+		// One producer per bus, in the order of the arbitration policy
+		int granted = 0;
+		while (granted < buses.length && !readyQueue.isEmpty()) {
+			CommonDataBus cdb = buses[granted];
+			busyCycles[granted++]++;
+			int id = readyQueue.poll();
+			ReservationStation prioritizedStation = stationsById[id];
+			if (prioritizedStation == null) {
+				LoadStoreBuffer prioritizedBuffer = buffersById[id];
+				cdb.broadcast(prioritizedBuffer.id, prioritizedBuffer.value, prioritizedBuffer.valueKind);
+				if (rob != null) {
+					rob.complete(entryOf[id], prioritizedBuffer.value, prioritizedBuffer.valueKind);
+					entryOf[id] = ReorderBuffer.NONE;
 				}
-			}
-
-			if (!readyBuffers.isEmpty()) {
-				prioritizedBuffer = readyBuffers.getFirst();
-				for (LoadStoreBuffer buffer : readyBuffers) {
-					int dependencies = countDependencies(buffer);
-					if (dependencies > maxDependenciesBuffer) {
-						maxDependenciesBuffer = dependencies;
-						prioritizedBuffer = buffer;
-					}
-				}
-			}
-
-			if (prioritizedBuffer != null && (prioritizedStation == null || maxDependenciesBuffer > maxDependenciesStation)) {
-				readyBuffers.remove(prioritizedBuffer);
-				cdb.tag = prioritizedBuffer.tag;
-				cdb.value = prioritizedBuffer.value;
 
-				System.out.println("Writing result from buffer: " + prioritizedBuffer);
+				trace(TraceEvent.WRITE_RESULT, prioritizedBuffer.id, TraceFormatter.kindCode(prioritizedBuffer.valueKind), prioritizedBuffer.value);
 
 				prioritizedBuffer.reset();
-			} else if (prioritizedStation != null) {
-				readyStations.remove(prioritizedStation);
-				cdb.tag = prioritizedStation.tag;
-				cdb.value = prioritizedStation.resultValue;
+			} else {
+				cdb.broadcast(prioritizedStation.id, prioritizedStation.resultValue, prioritizedStation.resultKind);
+				if (rob != null) {
+					rob.complete(entryOf[id], prioritizedStation.resultValue, prioritizedStation.resultKind);
+					entryOf[id] = ReorderBuffer.NONE;
+				}
 
-				System.out.println("Writing result from station: " + prioritizedStation);
+				trace(TraceEvent.WRITE_RESULT, prioritizedStation.id, TraceFormatter.kindCode(prioritizedStation.resultKind), prioritizedStation.resultValue);
 
 				prioritizedStation.reset();
 			}
 		}
-		checkBusRegisterFile();
-		checkBusReservationStations();
-		checkBusLoadStoreBuffer();
-		cdb.reset();
+		// every consumer is reached through the tag it waits on, so the buses never visit the same one
+		for (int b = 0; b < granted; b++) {
+			broadcastResult(buses[b]);
+			buses[b].reset();
+		}
 	}
 
 	private boolean canIssue() {
-		if (instructionQueue.isEmpty()) {
+		if (fetchUnit.isEmpty()) {
 			return false;
 		}
-		if (isBranchExecuting) {
+		if (isBranchExecuting || (rob != null && rob.isFull())) {
 			return false;
 		}
-		// check if two memory operations are accessing the same address
-		if (isMemoryOperation(instructionQueue.getFirst().operation)) {
-			for (LoadStoreBufferGroup group : loadStoreBuffers) {
-				for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
-					if (buffer.busy && buffer.address.equals(instructionQueue.getFirst().src1)) {
-						return false;
-					}
-				}
-			}
-		}
-		if (instructionQueue.getFirst().operation == InstructionType.BNE || instructionQueue.getFirst().operation == InstructionType.BEQ) {
-			return true;
+		int index = fetchUnit.peek();
+		InstructionType operation = source.operation(index);
+		if (isBranch(operation)) {
+			return getFreeBranchUnit() >= 0;
 		}
 
-		for (ReservationStationGroup group : reservationStations) {
-			if (group.operation == instructionQueue.getFirst().operation) {
-				for (ReservationStation station : group.stations) {
-					if (!station.busy) {
-						return true;
-					}
-				}
-			}
-		}
-		for (LoadStoreBufferGroup group : loadStoreBuffers) {
-			if (group.operation == instructionQueue.getFirst().operation) {
-				for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
-					if (!buffer.busy) {
-						return true;
-					}
-				}
-			}
-		}
-
-		return false;
+		return getFreeStation(operation) != null || getFreeLoadStoreBuffer(operation) != null;
 	}
 
 	public boolean isSimulationComplete() {
 		// Check if there are instructions still in the queue
-		if (!instructionQueue.isEmpty()) {
+		if (!fetchUnit.isEmpty() || source.has(fetchUnit.getPc())) {
 			return false;
 		}
 
@@ -599,7 +1079,6 @@ public class Processor {
 		for (LoadStoreBufferGroup group : loadStoreBuffers) {
 			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
 				if (buffer.busy) {
-					System.out.println("Buffer busy: " + buffer);
 					return false;
 				}
 			}
@@ -607,28 +1086,94 @@ public class Processor {
 
 		// Check if any registers are waiting for a result
 		for (Register register : registerFile.registers) {
-			if (register.tag != null) {
+			if (register.tag != Tags.READY) {
 				return false;
 			}
 		}
 
 		// Check if a branch is executing
-		return !isBranchExecuting;
+		for (ReservationStation branch : branchUnits) {
+			if (branch.busy) {
+				return false;
+			}
+		}
+		return rob == null || rob.isEmpty();
 	}
 
 	public void simulate() {
+		if (eventDriven) {
+			int idle = nextEventCycle() - cycle - 1;
+			if (idle > 0) {
+				if (history != null) {
+					history.repeat(idle);
+				}
+				skipIdleCycles(idle);
+			}
+		}
 		cycle++;
-		System.out.println("Cycle: " + cycle);
-		if (canIssue() && !instructionQueue.isEmpty()) {
+		trace(TraceEvent.CYCLE, 0, 0, 0);
+		if (rob != null) {
+			commitStage();
+		}
+		// in order, until the width is used up or the next instruction has to wait
+		for (int issued = 0; issued < config.getIssueWidth() && canIssue(); issued++) {
 			issueStage();
 		}
 		executeStage();
 		writeResultStage();
+		selectStage();
+		fetchUnit.fill(source);
 
 		// Save cycle state
-		cycleStates.add(getCurrentCycleState());
+		if (history != null) {
+			history.record(cycle, isSimulationComplete());
+		}
+	}
 
-		System.out.println("Register File: \n" + registerFile);
+	// Cycles in which nothing issues, executes, finishes or writes back only advance the counter
+	void skipIdleCycles(int count) {
+		cycle += count;
+	}
+
+	// First cycle after the current one in which some stage can change the state. Issue only becomes
+	// possible again after a unit frees up, so it is enough to look at the units: an operand-ready
+	// station or buffer acts when it starts, when it finishes at executionEndCycle and, for stations
+	// and loads, when it writes back the cycle after. Anything unclear is treated as an event.
+	private int nextEventCycle() {
+		int next = cycle + 1;
+		if (canIssue() || !readyQueue.isEmpty() || (rob != null && !rob.isEmpty() && rob.isReady(rob.head()))) {
+			return next;
+		}
+		for (ReservationStation branch : branchUnits) {
+			if (branch.busy && branch.isReadyToExecute()) {
+				return next;
+			}
+		}
+		int event = Integer.MAX_VALUE;
+		for (ReservationStationGroup group : reservationStations) {
+			for (ReservationStation station : group.stations) {
+				if (station.busy && station.isReadyToExecute()) {
+					if (station.executionStartCycle == 0 || station.executionEndCycle + 1 <= cycle) {
+						return next;
+					}
+					event = Math.min(event, station.executionEndCycle > cycle ? station.executionEndCycle : station.executionEndCycle + 1);
+				}
+			}
+		}
+		for (LoadStoreBufferGroup group : loadStoreBuffers) {
+			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
+				if (buffer.busy && buffer.q == Tags.READY) {
+					boolean isLoad = buffer.operation == InstructionType.L_D || buffer.operation == InstructionType.L_S || buffer.operation == InstructionType.LW || buffer.operation == InstructionType.LD;
+					int last = isLoad ? buffer.executionEndCycle + 1 : buffer.executionEndCycle;
+					if (buffer.executionStartCycle == 0 || last <= cycle) {
+						return next;
+					}
+					event = Math.min(event, buffer.executionEndCycle > cycle ? buffer.executionEndCycle : last);
+				}
+			}
+		}
+		// nothing pending at all: finished, or stuck, either way one cycle at a time
+		return event == Integer.MAX_VALUE ? next : event;
 	}
 
 	public void simulateAll() {
@@ -637,79 +1182,118 @@ public class Processor {
 		}
 	}
 
+	// Read-only view, each state is rebuilt from the history when it is accessed
 	public List<CycleState> getCycleStates() {
-		return cycleStates;
+		return new AbstractList<>() {
+			@Override
+			public CycleState get(int index) {
+				return history.get(index);
+			}
+
+			@Override
+			public int size() {
+				return history.size();
+			}
+		};
 	}
 
-	private CycleState getCurrentCycleState() {
+	// Full copy of the current state
+	CycleState snapshot() {
 		List<ReservationStationGroup> reservationStationsCopy = new ArrayList<>();
 		for (ReservationStationGroup group : reservationStations) {
-			ReservationStationGroup groupCopy = new ReservationStationGroup(group.stations.length, group.operation);
-			int i = 0;
-			for (ReservationStation station : group.stations) {
-				ReservationStation stationCopy = new ReservationStation(station.tag);
-				stationCopy.busy = station.busy;
-				stationCopy.operation = station.operation;
-				stationCopy.vJ = station.vJ;
-				stationCopy.vK = station.vK;
-				stationCopy.qJ = station.qJ;
-				stationCopy.qK = station.qK;
-				stationCopy.resultValue = station.resultValue;
-				stationCopy.executionStartCycle = station.executionStartCycle;
-				stationCopy.executionEndCycle = station.executionEndCycle;
-				groupCopy.stations[i++] = stationCopy;
-			}
-			reservationStationsCopy.add(groupCopy);
+			reservationStationsCopy.add(new ReservationStationGroup(group));
 		}
-
 		List<LoadStoreBufferGroup> loadStoreBuffersCopy = new ArrayList<>();
 		for (LoadStoreBufferGroup group : loadStoreBuffers) {
-			LoadStoreBufferGroup groupCopy = new LoadStoreBufferGroup(group.loadStoreBuffers.length, group.operation);
-			int i = 0;
-			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
-				LoadStoreBuffer bufferCopy = new LoadStoreBuffer(buffer.tag);
-				bufferCopy.busy = buffer.busy;
-				bufferCopy.operation = buffer.operation;
-				bufferCopy.address = buffer.address;
-				bufferCopy.value = buffer.value;
-				bufferCopy.q = buffer.q;
-				bufferCopy.executionStartCycle = buffer.executionStartCycle;
-				bufferCopy.executionEndCycle = buffer.executionEndCycle;
-				groupCopy.loadStoreBuffers[i++] = bufferCopy;
-			}
-			loadStoreBuffersCopy.add(groupCopy);
+			loadStoreBuffersCopy.add(new LoadStoreBufferGroup(group));
 		}
+		return new CycleState(reservationStationsCopy, loadStoreBuffersCopy, new CommonDataBus(buses[0]), fetchedInstructions(), new RegisterFile(registerFile), new Data(data), cycle, isSimulationComplete());
+	}
 
-		List<Instruction> instructionQueueCopy = new ArrayList<>(instructionQueue);
-
-		Data dataCopy = new Data(data);
-
-		RegisterFile registerFileCopy = new RegisterFile(registerFile);
+	public MachineConfig getConfig() {
+		return config;
+	}
 
-		return new CycleState(reservationStationsCopy, loadStoreBuffersCopy, cdb, instructionQueueCopy, registerFileCopy, dataCopy, cycle, isSimulationComplete());
+	public Data getData() {
+		return data;
 	}
 
 	public RegisterFile getRegisterFile() {
 		return registerFile;
 	}
 
+	// Clears the pipeline and leaves nothing to fetch
 	public void reset() {
+		if (!(source instanceof Program program)) {
+			throw new IllegalStateException("A processor running a trace cannot be reset");
+		}
+		rewind(program.size());
+	}
+
+	// Runs the program again from its first instruction against the memory as it is now, e.g. after
+	// Data.loadImage. The history starts over at cycle 1 with that memory as the initial state.
+	public void restart() {
+		if (!(source instanceof Program)) {
+			throw new IllegalStateException("A processor running a trace cannot be restarted");
+		}
+		rewind(0);
+	}
+
+	private void rewind(int pc) {
 		cycle = 1;
-		cycleStates.clear();
-		instructionQueue.clear();
+		issuedCount = 0;
+		fetchUnit.redirect(pc);
 		registerFile.reset();
-		cdb.reset();
+		for (CommonDataBus bus : buses) {
+			bus.reset();
+		}
+		Arrays.fill(busyCycles, 0);
+		wakeupIndex.clear();
+		readyQueue.clear();
 		for (ReservationStationGroup group : reservationStations) {
 			for (ReservationStation station : group.stations) {
 				station.reset();
 			}
 		}
-		branchBuffer.reset();
+		for (ReservationStation branch : branchUnits) {
+			branch.reset();
+		}
+		isBranchExecuting = false;
+		if (rob != null) {
+			rob.clear();
+		}
+		Arrays.fill(entryOf, ReorderBuffer.NONE);
+		Arrays.fill(branchEntry, ReorderBuffer.NONE);
+		predictor.reset();
+		branchStatistics.clear();
+		for (int[] freeCycle : unitFreeCycle) {
+			Arrays.fill(freeCycle, 0);
+		}
+		unitWaitCycles = 0;
+		loadStoreQueue.clear();
+		forwardedLoads = 0;
+		bypassingLoads = 0;
+		memoryOrderStalls = 0;
+		if (missRegisters != null) {
+			missRegisters.clear();
+		}
+		primaryMisses = 0;
+		mergedMisses = 0;
+		mshrStalls = 0;
+		missCycles = 0;
+		missBusyCycles = 0;
+		missBusyUntil = 0;
+		committedCount = 0;
+		squashedCount = 0;
 		for (LoadStoreBufferGroup group : loadStoreBuffers) {
 			for (LoadStoreBuffer buffer : group.loadStoreBuffers) {
 				buffer.reset();
 			}
 		}
+		fetchUnit.fill(source);
+		if (history != null) {
+			history.restart(cycle, isSimulationComplete());
+		}
 	}
 
 }
\ No newline at end of file
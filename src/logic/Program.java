@@ -0,0 +1,85 @@
+package logic;
+
+import java.util.List;
+
+// Immutable decoded program held entirely in memory, so copies of a processor can share it and
+// branches can jump anywhere in it.
+public final class Program extends DecodedInstructions implements InstructionSource {
+	private final Instruction[] instructions;
+
+	private Program(int registerCount, int memorySize, int size) {
+		super(registerCount, memorySize, size);
+		instructions = new Instruction[size];
+	}
+
+	// Throws IllegalArgumentException naming the first malformed instruction
+	public static Program decode(List<Instruction> instructions, int registerCount, int memorySize) {
+		Program program = new Program(registerCount, memorySize, instructions.size());
+		for (int i = 0; i < instructions.size(); i++) {
+			program.decode(i, i + 1, instructions.get(i));
+			program.instructions[i] = instructions.get(i);
+		}
+		return program;
+	}
+
+	// New program with one more instruction at the end
+	public Program append(Instruction instruction) {
+		int size = size();
+		Program program = new Program(registerCount, memorySize, size + 1);
+		for (int i = 0; i < size; i++) {
+			copySlot(i, program, i);
+		}
+		System.arraycopy(instructions, 0, program.instructions, 0, size);
+		program.decode(size, size + 1, instruction);
+		program.instructions[size] = instruction;
+		return program;
+	}
+
+	public int size() {
+		return instructions.length;
+	}
+
+	@Override
+	public boolean has(int index) {
+		return index < instructions.length;
+	}
+
+	@Override
+	public InstructionType operation(int index) {
+		return OPERATIONS[operations[index]];
+	}
+
+	@Override
+	public int dest(int index) {
+		return dest[index];
+	}
+
+	@Override
+	public int src1(int index) {
+		return src1[index];
+	}
+
+	@Override
+	public int src2(int index) {
+		return src2[index];
+	}
+
+	@Override
+	public long immediate(int index) {
+		return immediate[index];
+	}
+
+	@Override
+	public ValueKind immediateKind(int index) {
+		return immediateKind[index];
+	}
+
+	@Override
+	public Instruction instruction(int index) {
+		return instructions[index];
+	}
+
+	@Override
+	public void release(int index) {
+	}
+}
@@ -0,0 +1,172 @@
+package logic;
+
+import java.util.Arrays;
+
+// Producers that finished executing and wait for a CDB, as an indexed binary heap ordered by the
+// arbitration policy. With DEPENDENTS the head is the producer with the most dependents; ties go
+// to the lower rank (stations before buffers) and then to whichever became ready first. With
+// OLDEST it is the lowest age. With ROUND_ROBIN it is the first id at or after the turn, counting
+// around; poll moves the turn past the head, which keeps every remaining id in the same order.
+public class ReadyQueue implements WakeupIndex.CountListener {
+	private final CdbArbitration arbitration;
+	private final int[] heap;
+	private final int[] position; // per id, -1 when not queued
+	private final int[] dependents; // per id
+	private final int[] rank; // per id
+	private final long[] sequence; // per id
+	private final long[] age; // per id
+	private int size;
+	private long nextSequence;
+	private int turn; // id that goes first for ROUND_ROBIN
+
+	public ReadyQueue(int idCount, CdbArbitration arbitration) {
+		this.arbitration = arbitration;
+		heap = new int[idCount];
+		position = new int[idCount];
+		dependents = new int[idCount];
+		rank = new int[idCount];
+		sequence = new long[idCount];
+		age = new long[idCount];
+		Arrays.fill(position, -1);
+	}
+
+	public ReadyQueue(ReadyQueue queue) {
+		arbitration = queue.arbitration;
+		heap = queue.heap.clone();
+		position = queue.position.clone();
+		dependents = queue.dependents.clone();
+		rank = queue.rank.clone();
+		sequence = queue.sequence.clone();
+		age = queue.age.clone();
+		size = queue.size;
+		nextSequence = queue.nextSequence;
+		turn = queue.turn;
+	}
+
+	// age orders producers for OLDEST, lower is older
+	public void add(int id, int dependentCount, int tieRank, long age) {
+		dependents[id] = dependentCount;
+		rank[id] = tieRank;
+		this.age[id] = age;
+		sequence[id] = nextSequence++;
+		heap[size] = id;
+		position[id] = size;
+		siftUp(size++);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int id) {
+		return position[id] != -1;
+	}
+
+	public int peek() {
+		if (size == 0) {
+			throw new IllegalStateException("No producer is ready");
+		}
+		return heap[0];
+	}
+
+	public int poll() {
+		int top = peek();
+		remove(top);
+		if (arbitration == CdbArbitration.ROUND_ROBIN) {
+			turn = (top + 1) % position.length;
+		}
+		return top;
+	}
+
+	public void remove(int id) {
+		int index = position[id];
+		position[id] = -1;
+		size--;
+		if (index == size) {
+			return;
+		}
+		heap[index] = heap[size];
+		position[heap[index]] = index;
+		siftDown(index);
+		siftUp(index);
+	}
+
+	@Override
+	public void countChanged(int tag, int count) {
+		int index = position[tag];
+		if (index == -1) {
+			return;
+		}
+		int old = dependents[tag];
+		dependents[tag] = count;
+		if (count > old) {
+			siftUp(index);
+		} else {
+			siftDown(index);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			position[heap[i]] = -1;
+		}
+		size = 0;
+		turn = 0;
+	}
+
+	private boolean before(int a, int b) {
+		if (arbitration == CdbArbitration.ROUND_ROBIN) {
+			return Math.floorMod(a - turn, position.length) < Math.floorMod(b - turn, position.length);
+		}
+		if (arbitration == CdbArbitration.OLDEST) {
+			return age[a] != age[b] ? age[a] < age[b] : sequence[a] < sequence[b];
+		}
+		if (dependents[a] != dependents[b]) {
+			return dependents[a] > dependents[b];
+		}
+		if (rank[a] != rank[b]) {
+			return rank[a] < rank[b];
+		}
+		return sequence[a] < sequence[b];
+	}
+
+	private void siftUp(int index) {
+		int id = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >> 1;
+			if (!before(id, heap[parent])) {
+				break;
+			}
+			heap[index] = heap[parent];
+			position[heap[index]] = index;
+			index = parent;
+		}
+		heap[index] = id;
+		position[id] = index;
+	}
+
+	private void siftDown(int index) {
+		int id = heap[index];
+		while (true) {
+			int child = 2 * index + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && before(heap[child + 1], heap[child])) {
+				child++;
+			}
+			if (!before(heap[child], id)) {
+				break;
+			}
+			heap[index] = heap[child];
+			position[heap[index]] = index;
+			index = child;
+		}
+		heap[index] = id;
+		position[id] = index;
+	}
+}
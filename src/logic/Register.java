@@ -2,28 +2,34 @@ package logic;
 
 public class Register {
 	String name;
-	String value;
-	String tag;
+	long value;
+	ValueKind kind;
+	int tag; // Producer id of the pending write, Tags.READY when the value is current
+	Tags tags;
 
 
 
-	public Register(String name, String value) {
+	public Register(String name, long value, ValueKind kind) {
 		this.name = name;
 		this.value = value;
+		this.kind = kind;
 	}
 
 	public Register(Register register) {
 		this.name = register.name;
 		this.value = register.value;
+		this.kind = register.kind;
 		this.tag = register.tag;
+		this.tags = register.tags;
 	}
 
 	public String getValue() {
-		return value;
+		return Values.toString(value, kind);
 	}
 
-	public void setValue(String value) {
+	public void setValue(long value, ValueKind kind) {
 		this.value = value;
+		this.kind = kind;
 	}
 
 	public String getName() {
@@ -31,23 +37,26 @@ public class Register {
 	}
 
 	public String getTag() {
-		return tag;
+		if (tag == Tags.READY) {
+			return null;
+		}
+		return tags != null ? tags.name(tag) : String.valueOf(tag);
 	}
 
-	public void setTag(String tag) {
+	public void setTag(int tag) {
 		this.tag = tag;
 	}
 
 	public boolean getReady() {
-		return tag == null;
+		return tag == Tags.READY;
 	}
 
 	public void reset() {
-		tag = null;
+		tag = Tags.READY;
 	}
 
 	public String toString() {
-		return name + " " + value + " " + tag;
+		return name + " " + getValue() + " " + getTag();
 	}
 
 }
@@ -6,7 +6,7 @@ public class RegisterFile {
 	public RegisterFile(int size) {
 		registers = new Register[size];
 		for (int i = 0; i < size; i++) {
-			registers[i] = new Register("F" + i,String.valueOf((int) (Math.random() * 10000000) / 1000.0));
+			registers[i] = new Register("F" + i, Values.fromDouble((int) (Math.random() * 10000000) / 1000.0), ValueKind.FP);
 		}
 	}
 	public int getSize() {
@@ -0,0 +1,161 @@
+package logic;
+
+import java.util.Arrays;
+
+// Instructions between issue and commit, oldest first, as a ring of parallel arrays. Results are
+// kept here until the entry commits, the rename map names the youngest entry writing each register.
+// Every entry remembers the mapping it replaced, so squashing from the youngest entry back restores
+// the map as it was when the mispredicted branch issued.
+public class ReorderBuffer {
+	static final int NONE = -1;
+	private static final InstructionType[] OPERATIONS = InstructionType.values();
+
+	private final int[] operation; // InstructionType ordinal
+	private final int[] dest; // register index, NONE for stores and branches
+	private final int[] previous; // mapping of dest before this entry
+	private final int[] producer; // station or buffer id, branch unit for branches
+	private final int[] address; // stores only
+	private final int[] index; // instruction position
+	private final boolean[] ready;
+	private final long[] value;
+	private final ValueKind[] kind;
+	private final int[] mapping; // per register, NONE when the register file holds the latest value
+	private int head;
+	private int count;
+
+	public ReorderBuffer(int size, int registerCount) {
+		operation = new int[size];
+		dest = new int[size];
+		previous = new int[size];
+		producer = new int[size];
+		address = new int[size];
+		index = new int[size];
+		ready = new boolean[size];
+		value = new long[size];
+		kind = new ValueKind[size];
+		mapping = new int[registerCount];
+		Arrays.fill(mapping, NONE);
+	}
+
+	public ReorderBuffer(ReorderBuffer rob) {
+		operation = rob.operation.clone();
+		dest = rob.dest.clone();
+		previous = rob.previous.clone();
+		producer = rob.producer.clone();
+		address = rob.address.clone();
+		index = rob.index.clone();
+		ready = rob.ready.clone();
+		value = rob.value.clone();
+		kind = rob.kind.clone();
+		mapping = rob.mapping.clone();
+		head = rob.head;
+		count = rob.count;
+	}
+
+	boolean isFull() {
+		return count == operation.length;
+	}
+
+	boolean isEmpty() {
+		return count == 0;
+	}
+
+	int size() {
+		return count;
+	}
+
+	// Entry at the tail, renaming destRegister to it when it is not NONE
+	int allocate(InstructionType type, int destRegister, int producerId, int storeAddress, int instructionIndex) {
+		int entry = (head + count++) % operation.length;
+		operation[entry] = type.ordinal();
+		dest[entry] = destRegister;
+		producer[entry] = producerId;
+		address[entry] = storeAddress;
+		index[entry] = instructionIndex;
+		ready[entry] = false;
+		value[entry] = 0;
+		kind[entry] = null;
+		if (destRegister != NONE) {
+			previous[entry] = mapping[destRegister];
+			mapping[destRegister] = entry;
+		}
+		return entry;
+	}
+
+	void complete(int entry, long result, ValueKind resultKind) {
+		ready[entry] = true;
+		value[entry] = result;
+		kind[entry] = resultKind;
+	}
+
+	int head() {
+		return head;
+	}
+
+	int youngest() {
+		return (head + count - 1) % operation.length;
+	}
+
+	// Removes the head once it committed, the register file now holds its value
+	void retire() {
+		if (dest[head] != NONE && mapping[dest[head]] == head) {
+			mapping[dest[head]] = NONE;
+		}
+		head = (head + 1) % operation.length;
+		count--;
+	}
+
+	// Removes the youngest entry without committing it. The entry it renamed over may have
+	// committed since, then the register file holds that value again.
+	void squashYoungest() {
+		int entry = youngest();
+		if (dest[entry] != NONE) {
+			int before = previous[entry];
+			boolean live = before != NONE && (before - head + operation.length) % operation.length < count - 1;
+			mapping[dest[entry]] = live ? before : NONE;
+		}
+		count--;
+	}
+
+	int mapping(int register) {
+		return mapping[register];
+	}
+
+	InstructionType operation(int entry) {
+		return OPERATIONS[operation[entry]];
+	}
+
+	int dest(int entry) {
+		return dest[entry];
+	}
+
+	int producer(int entry) {
+		return producer[entry];
+	}
+
+	int address(int entry) {
+		return address[entry];
+	}
+
+	int index(int entry) {
+		return index[entry];
+	}
+
+	boolean isReady(int entry) {
+		return ready[entry];
+	}
+
+	long value(int entry) {
+		return value[entry];
+	}
+
+	ValueKind kind(int entry) {
+		return kind[entry];
+	}
+
+	void clear() {
+		head = 0;
+		count = 0;
+		Arrays.fill(mapping, NONE);
+	}
+}
@@ -0,0 +1,13 @@
+package logic;
+
+// Which way of a full cache set a miss replaces
+public enum ReplacementPolicy {
+	// Least recently used, kept as a list per set
+	LRU,
+	// Tree of one bit per pair of subtrees pointing away from the last access, needs a power of two ways
+	PLRU,
+	// Oldest filled way first
+	FIFO,
+	// Any way, from a seeded generator so runs repeat
+	RANDOM
+}
@@ -2,16 +2,21 @@ package logic;
 
 public class ReservationStation {
 	String tag;
+	int id; // producer id, also used as the tag value consumers wait on
+	Tags tags;
 	boolean busy;
 	InstructionType operation;
 
-	String vJ;
-	String vK; // Values of operands
+	long vJ;
+	long vK; // Values of operands
+	ValueKind vJKind;
+	ValueKind vKKind; // null while the operand has no value
 
-	String qJ;
-	String qK; // Tags of operands if waiting
+	int qJ;
+	int qK; // Tags of operands if waiting, Tags.READY otherwise
 
-	String resultValue;
+	long resultValue;
+	ValueKind resultKind;
 	int executionStartCycle = 0;
 	int executionEndCycle = 0;
 
@@ -20,6 +25,24 @@ public class ReservationStation {
 		this.busy = false;
 	}
 
+	public ReservationStation(ReservationStation station) {
+		this.tag = station.tag;
+		this.id = station.id;
+		this.tags = station.tags;
+		this.busy = station.busy;
+		this.operation = station.operation;
+		this.vJ = station.vJ;
+		this.vK = station.vK;
+		this.vJKind = station.vJKind;
+		this.vKKind = station.vKKind;
+		this.qJ = station.qJ;
+		this.qK = station.qK;
+		this.resultValue = station.resultValue;
+		this.resultKind = station.resultKind;
+		this.executionStartCycle = station.executionStartCycle;
+		this.executionEndCycle = station.executionEndCycle;
+	}
+
 	public int getExecutionEndCycle() {
 		return executionEndCycle;
 	}
@@ -29,23 +52,23 @@ public class ReservationStation {
 	}
 
 	public String getResultValue() {
-		return resultValue;
+		return Values.toString(resultValue, resultKind);
 	}
 
 	public String getQK() {
-		return qK;
+		return busy ? tagName(qK) : null;
 	}
 
 	public String getQJ() {
-		return qJ;
+		return busy ? tagName(qJ) : null;
 	}
 
 	public String getVK() {
-		return vK;
+		return Values.toString(vK, vKKind);
 	}
 
 	public String getVJ() {
-		return vJ;
+		return Values.toString(vJ, vJKind);
 	}
 
 	public InstructionType getOperation() {
@@ -61,20 +84,25 @@ public class ReservationStation {
 	}
 
 	public boolean isReadyToExecute() {
-		return qJ.equals("0") && qK.equals("0");
+		return qJ == Tags.READY && qK == Tags.READY;
+	}
+
+	private String tagName(int id) {
+		return tags != null ? tags.name(id) : String.valueOf(id);
 	}
 
 	public void reset() {
 		busy = false;
 		operation = null;
-		vJ = vK = qJ = qK = null;
-		resultValue = null;
+		qJ = qK = Tags.READY;
+		vJ = vK = resultValue = 0;
+		vJKind = vKKind = resultKind = null;
 		executionStartCycle = executionEndCycle = 0;
 	}
 
 
 	public String toString() {
-		return tag + " " + operation + " " + vJ + " " + vK + " " + qJ + " " + qK + " " + resultValue + " " + executionStartCycle + " " + executionEndCycle + " " + busy;
+		return tag + " " + operation + " " + getVJ() + " " + getVK() + " " + getQJ() + " " + getQK() + " " + getResultValue() + " " + executionStartCycle + " " + executionEndCycle + " " + busy;
 	}
 }
 
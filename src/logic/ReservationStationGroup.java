@@ -13,10 +13,22 @@ public class ReservationStationGroup {
 		}
 	}
 
+	public ReservationStationGroup(ReservationStationGroup group) {
+		this.operation = group.operation;
+		stations = new ReservationStation[group.stations.length];
+		for (int i = 0; i < stations.length; i++) {
+			stations[i] = new ReservationStation(group.stations[i]);
+		}
+	}
+
 	public ReservationStation[] getStations() {
 		return stations;
 	}
 
+	public InstructionType getOperation() {
+		return operation;
+	}
+
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append(operation + ": \n");
@@ -0,0 +1,139 @@
+package logic;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Single-producer single-consumer ring of primitive event records. The simulating thread only
+// stores a few ints and a long per event, a daemon writer thread drains the ring and does all
+// the formatting and I/O. When the ring is full the producer spins until the writer catches up,
+// so no event is lost. Only one thread may report events, close() flushes everything written.
+public class RingBufferTraceSink implements TraceSink, AutoCloseable {
+	private static final long PARK_NANOS = 100_000;
+	private static final TraceEvent[] EVENTS = TraceEvent.values();
+
+	private final TraceLevel level;
+	private final TraceFormatter formatter;
+	private final Appendable out;
+	private final int mask;
+	private final int[] events;
+	private final int[] cycles;
+	private final int[] subjects;
+	private final int[] details;
+	private final long[] values;
+	// Number of events published by the producer and consumed by the writer
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	private final Thread writer;
+	private volatile boolean closed;
+	private IOException failure;
+
+	public RingBufferTraceSink(TraceLevel level, TraceFormatter formatter, Appendable out, int capacity) {
+		if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+		}
+		this.level = level;
+		this.formatter = formatter;
+		this.out = out;
+		mask = capacity - 1;
+		events = new int[capacity];
+		cycles = new int[capacity];
+		subjects = new int[capacity];
+		details = new int[capacity];
+		values = new long[capacity];
+		writer = new Thread(this::drain, "trace-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	@Override
+	public TraceLevel getLevel() {
+		return level;
+	}
+
+	@Override
+	public void event(TraceEvent event, int cycle, int subject, int detail, long value) {
+		if (closed) {
+			throw new IllegalStateException("Trace sink is closed");
+		}
+		long written = head.getPlain();
+		while (written - tail.getAcquire() > mask) {
+			LockSupport.unpark(writer);
+			Thread.onSpinWait();
+		}
+		int slot = (int) written & mask;
+		events[slot] = event.ordinal();
+		cycles[slot] = cycle;
+		subjects[slot] = subject;
+		details[slot] = detail;
+		values[slot] = value;
+		head.setRelease(written + 1);
+	}
+
+	private void drain() {
+		StringBuilder line = new StringBuilder();
+		long read = tail.getPlain();
+		while (true) {
+			long written = head.getAcquire();
+			if (read == written) {
+				// events published before close() are visible once closed is, so look once more
+				if (closed && head.getAcquire() == read) {
+					break;
+				}
+				LockSupport.parkNanos(PARK_NANOS);
+				continue;
+			}
+			for (; read < written; read++) {
+				int slot = (int) read & mask;
+				line.setLength(0);
+				formatter.format(line, EVENTS[events[slot]], cycles[slot], subjects[slot], details[slot], values[slot]);
+				line.append(System.lineSeparator());
+				write(line);
+			}
+			tail.setRelease(read);
+			flush();
+		}
+	}
+
+	// After a failed write the writer keeps consuming events so the producer never blocks
+	private void write(CharSequence line) {
+		if (failure != null) {
+			return;
+		}
+		try {
+			out.append(line);
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	private void flush() {
+		if (failure == null && out instanceof Flushable flushable) {
+			try {
+				flushable.flush();
+			} catch (IOException e) {
+				failure = e;
+			}
+		}
+	}
+
+	// Waits for the writer to drain the ring, rethrows the first write failure if there was one
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		LockSupport.unpark(writer);
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (failure != null) {
+			throw new UncheckedIOException(failure);
+		}
+	}
+}
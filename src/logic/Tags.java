@@ -0,0 +1,20 @@
+package logic;
+
+// Names for the dense producer ids used as tags. Id 0 (READY) means "value available".
+public final class Tags {
+	public static final int READY = 0;
+
+	private final String[] names;
+
+	public Tags(String[] names) {
+		this.names = names;
+	}
+
+	public String name(int id) {
+		return names[id];
+	}
+
+	public int size() {
+		return names.length;
+	}
+}
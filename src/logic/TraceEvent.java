@@ -0,0 +1,39 @@
+package logic;
+
+// Events the processor reports while simulating. Every event carries the cycle plus up to three
+// primitive fields, their meaning depends on the event:
+//   CYCLE            -
+//   ISSUE            subject = instruction index, detail = producer id (READY for a branch)
+//   ISSUE_STALL      subject = instruction index
+//   BRANCH_RESOLVED  subject = target, detail = 1 when taken
+//   EXECUTE          subject = producer id
+//   EXECUTE_DONE     subject = producer id, detail = value kind, value = result word
+//   WRITE_RESULT     subject = producer id, detail = value kind, value = result word
+//   REGISTER_WRITE   subject = register index, detail = value kind, value = written word
+//   COMMIT           subject = instruction index
+//   SQUASH           subject = instruction index
+//   MISPREDICT       subject = branch instruction index, detail = cycles since it issued
+// Value kinds are encoded as the ValueKind ordinal, or -1 for no value.
+public enum TraceEvent {
+	CYCLE(TraceLevel.INFO),
+	ISSUE(TraceLevel.INFO),
+	ISSUE_STALL(TraceLevel.DEBUG),
+	BRANCH_RESOLVED(TraceLevel.INFO),
+	EXECUTE(TraceLevel.DEBUG),
+	EXECUTE_DONE(TraceLevel.INFO),
+	WRITE_RESULT(TraceLevel.INFO),
+	REGISTER_WRITE(TraceLevel.DEBUG),
+	COMMIT(TraceLevel.DEBUG),
+	SQUASH(TraceLevel.INFO),
+	MISPREDICT(TraceLevel.INFO);
+
+	final TraceLevel level;
+
+	TraceEvent(TraceLevel level) {
+		this.level = level;
+	}
+
+	public TraceLevel getLevel() {
+		return level;
+	}
+}
@@ -0,0 +1,49 @@
+package logic;
+
+// Turns trace events back into readable lines, using the names of the processor that produced them
+public class TraceFormatter {
+	private static final ValueKind[] KINDS = ValueKind.values();
+
+	private final Tags tags;
+	private final Processor processor;
+
+	TraceFormatter(Tags tags, Processor processor) {
+		this.tags = tags;
+		this.processor = processor;
+	}
+
+	static int kindCode(ValueKind kind) {
+		return kind == null ? -1 : kind.ordinal();
+	}
+
+	public void format(StringBuilder line, TraceEvent event, int cycle, int subject, int detail, long value) {
+		switch (event) {
+			case CYCLE -> line.append("Cycle: ").append(cycle);
+			case ISSUE -> {
+				line.append("Instruction issued: ").append(instruction(subject));
+				if (detail != Tags.READY) {
+					line.append(" -> ").append(tags.name(detail));
+				}
+			}
+			case ISSUE_STALL -> line.append("No free station or buffer for: ").append(instruction(subject));
+			case BRANCH_RESOLVED -> line.append("Branch resolved: ").append(detail == 1 ? "taken to " + subject : "not taken");
+			case EXECUTE -> line.append("Executing instruction: ").append(tags.name(subject));
+			case EXECUTE_DONE -> line.append("Execution finished for ").append(tags.name(subject)).append(": ").append(value(value, detail));
+			case WRITE_RESULT -> line.append("Writing result from ").append(tags.name(subject)).append(": ").append(value(value, detail));
+			case COMMIT -> line.append("Committed: ").append(instruction(subject));
+			case SQUASH -> line.append("Squashed: ").append(instruction(subject));
+			case MISPREDICT -> line.append("Mispredicted: ").append(instruction(subject)).append(", ").append(detail).append(" cycles lost");
+			case REGISTER_WRITE -> line.append("Broadcasting result to register: F").append(subject).append(" = ").append(value(value, detail));
+		}
+	}
+
+	// A trace keeps no source instructions around for a sink to format later, so only the position is shown
+	private String instruction(int index) {
+		Instruction instruction = processor.instruction(index);
+		return instruction != null ? instruction.toString() : "#" + (index + 1);
+	}
+
+	private static String value(long value, int kind) {
+		return kind < 0 ? "-" : Values.toString(value, KINDS[kind]);
+	}
+}
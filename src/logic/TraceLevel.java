@@ -0,0 +1,10 @@
+package logic;
+
+// Verbosity of a trace sink. A sink at some level receives the events of that level and all levels above it.
+public enum TraceLevel {
+	OFF, ERROR, INFO, DEBUG;
+
+	public boolean includes(TraceLevel level) {
+		return level.ordinal() <= ordinal();
+	}
+}
@@ -0,0 +1,20 @@
+package logic;
+
+// Receives the trace events of a processor. The processor only calls event() for events whose level
+// the sink includes, so a sink at OFF costs one comparison per event site.
+public interface TraceSink {
+	TraceSink NONE = new TraceSink() {
+		@Override
+		public TraceLevel getLevel() {
+			return TraceLevel.OFF;
+		}
+
+		@Override
+		public void event(TraceEvent event, int cycle, int subject, int detail, long value) {
+		}
+	};
+
+	TraceLevel getLevel();
+
+	void event(TraceEvent event, int cycle, int subject, int detail, long value);
+}
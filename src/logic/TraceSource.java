@@ -0,0 +1,230 @@
+package logic;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Dynamic instruction trace read lazily from a file. Instructions are decoded a chunk at a time
+// ahead of the fetch unit into a small window, and dropped again once the processor released them,
+// so only the instructions between issue and fetch are ever on the heap. Two formats are accepted:
+//
+//   text     the program format, one "operation dest src1 src2" per line, # starts a comment line
+//   binary   "TOMT", a version int, then one 16 byte record per instruction (see TraceWriter)
+//
+// A trace is the path the program already took, so taken branches do not redirect fetch.
+public final class TraceSource extends DecodedInstructions implements InstructionSource, Closeable {
+	static final int MAGIC = 0x544F4D54; // "TOMT"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 8;
+	static final int RECORD_SIZE = 16;
+	static final int DEFAULT_CHUNK = 4096;
+	private static final ValueKind[] KINDS = ValueKind.values();
+
+	private final FileChannel channel;
+	private final ByteBuffer records; // binary traces only
+	private final BufferedReader reader; // text traces only
+	private final int chunkSize;
+	private int offset; // trace index held in slot 0
+	private int base; // instructions before base were released
+	private int end; // instructions before end were decoded
+	private boolean exhausted;
+
+	private TraceSource(FileChannel channel, boolean binary, int registerCount, int memorySize, int chunkSize) {
+		super(registerCount, memorySize, 2 * chunkSize);
+		this.channel = channel;
+		this.chunkSize = chunkSize;
+		if (binary) {
+			records = ByteBuffer.allocateDirect(chunkSize * RECORD_SIZE);
+			reader = null;
+		} else {
+			records = null;
+			reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8));
+		}
+	}
+
+	public static TraceSource open(Path path, int registerCount, int memorySize) throws IOException {
+		return open(path, registerCount, memorySize, DEFAULT_CHUNK);
+	}
+
+	// Throws IllegalArgumentException for a binary trace of another version
+	public static TraceSource open(Path path, int registerCount, int memorySize, int chunkSize) throws IOException {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+		}
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining() && channel.read(header) >= 0) {
+			}
+			header.flip();
+			boolean binary = header.remaining() == HEADER_SIZE && header.getInt() == MAGIC;
+			if (binary) {
+				int version = header.getInt();
+				if (version != VERSION) {
+					throw new IllegalArgumentException(path + ": unsupported trace version " + version);
+				}
+			} else {
+				channel.position(0);
+			}
+			return new TraceSource(channel, binary, registerCount, memorySize, chunkSize);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	// Instruction on one line of the text format, null for blank, comment and incomplete lines
+	static Instruction parseLine(String line, long number) {
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#")) {
+			return null;
+		}
+		String[] parts = line.split("\\s+");
+		if (parts.length != 4) {
+			return null;
+		}
+		try {
+			return new Instruction(parts[0], parts[1], parts[2], parts[3]);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Instruction " + number + " (" + line + "): unknown operation " + parts[0], e);
+		}
+	}
+
+	boolean fits(int registerCount, int memorySize) {
+		return this.registerCount == registerCount && this.memorySize == memorySize;
+	}
+
+	// Throws UncheckedIOException when the file cannot be read, IllegalArgumentException for a malformed instruction
+	@Override
+	public boolean has(int index) {
+		while (index >= end && !exhausted) {
+			readChunk();
+		}
+		return index < end;
+	}
+
+	private void readChunk() {
+		if (end > Integer.MAX_VALUE - chunkSize) {
+			throw new IllegalArgumentException("Trace longer than " + Integer.MAX_VALUE + " instructions");
+		}
+		if (end - offset + chunkSize > operations.length) {
+			// drop the released instructions first, grow only if the rest still does not fit
+			int live = end - base;
+			shift(base - offset, live);
+			offset = base;
+			if (live + chunkSize > operations.length) {
+				resize(Math.max(2 * operations.length, live + chunkSize));
+			}
+		}
+		try {
+			if (records != null) {
+				readRecords();
+			} else {
+				readLines();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void readRecords() throws IOException {
+		records.clear();
+		while (records.hasRemaining()) {
+			if (channel.read(records) < 0) {
+				exhausted = true;
+				break;
+			}
+		}
+		records.flip();
+		if (records.remaining() % RECORD_SIZE != 0) {
+			throw new IllegalArgumentException("Instruction " + (end + records.remaining() / RECORD_SIZE + 1) + ": truncated record");
+		}
+		while (records.hasRemaining()) {
+			int operation = records.get();
+			int kind = records.get();
+			int destIndex = records.getChar();
+			int source1 = records.getInt();
+			long operand = records.getLong();
+			if (kind < 0 || kind > KINDS.length) {
+				throw new IllegalArgumentException("Instruction " + (end + 1) + ": bad value kind: " + kind);
+			}
+			decode(end - offset, end + 1L, operation, destIndex, source1, operand, kind == 0 ? null : KINDS[kind - 1]);
+			end++;
+		}
+	}
+
+	private void readLines() throws IOException {
+		int read = 0;
+		while (read < chunkSize) {
+			String line = reader.readLine();
+			if (line == null) {
+				exhausted = true;
+				return;
+			}
+			Instruction instruction = parseLine(line, end + 1L);
+			if (instruction != null) {
+				decode(end - offset, end + 1L, instruction);
+				end++;
+				read++;
+			}
+		}
+	}
+
+	@Override
+	public InstructionType operation(int index) {
+		return OPERATIONS[operations[index - offset]];
+	}
+
+	@Override
+	public int dest(int index) {
+		return dest[index - offset];
+	}
+
+	@Override
+	public int src1(int index) {
+		return src1[index - offset];
+	}
+
+	@Override
+	public int src2(int index) {
+		return src2[index - offset];
+	}
+
+	@Override
+	public long immediate(int index) {
+		return immediate[index - offset];
+	}
+
+	@Override
+	public ValueKind immediateKind(int index) {
+		return immediateKind[index - offset];
+	}
+
+	// Rebuilt from the decoded fields, so registers always show with an F prefix
+	@Override
+	public Instruction instruction(int index) {
+		return index >= base && index < end ? toInstruction(index - offset) : null;
+	}
+
+	@Override
+	public void release(int index) {
+		base = Math.max(base, Math.min(index, end));
+	}
+
+	// Instructions decoded so far
+	public int getDecodedCount() {
+		return end;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,86 @@
+package logic;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Writes the binary trace format read by TraceSource. After the header every instruction is one
+// record of RECORD_SIZE bytes, big-endian:
+//
+//   operation   1 byte    InstructionType ordinal
+//   kind        1 byte    0 or ValueKind ordinal + 1 of the immediate
+//   dest        2 bytes   register index, unsigned
+//   src1        4 bytes   register index or memory address
+//   operand     8 bytes   src2 register, branch target or immediate bits
+//
+// Operands are only checked for their form here, register and address ranges are checked against
+// the machine when the trace is read.
+public final class TraceWriter extends DecodedInstructions implements Closeable {
+	private static final int MAX_REGISTERS = 1 << 16;
+
+	private final FileChannel channel;
+	private final ByteBuffer records = ByteBuffer.allocateDirect(TraceSource.DEFAULT_CHUNK * TraceSource.RECORD_SIZE);
+	private long count;
+
+	public TraceWriter(Path path) throws IOException {
+		super(MAX_REGISTERS, Integer.MAX_VALUE, 1);
+		channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		records.putInt(TraceSource.MAGIC).putInt(TraceSource.VERSION);
+	}
+
+	// Converts a text trace, returns the number of instructions written
+	public static long convert(Path text, Path binary) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(text); TraceWriter writer = new TraceWriter(binary)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				Instruction instruction = TraceSource.parseLine(line, writer.count + 1);
+				if (instruction != null) {
+					writer.write(instruction);
+				}
+			}
+			return writer.count;
+		}
+	}
+
+	// Throws IllegalArgumentException when the instruction is malformed
+	public void write(Instruction instruction) throws IOException {
+		decode(0, count + 1, instruction);
+		InstructionType operation = OPERATIONS[operations[0]];
+		long operand = switch (operation) {
+			case DADDI, DSUBI -> immediate[0];
+			default -> InstructionType.isMemoryOperation(operation) ? 0 : src2[0];
+		};
+		if (records.remaining() < TraceSource.RECORD_SIZE) {
+			flush();
+		}
+		records.put((byte) operations[0])
+				.put((byte) (immediateKind[0] == null ? 0 : immediateKind[0].ordinal() + 1))
+				.putChar((char) dest[0])
+				.putInt(src1[0])
+				.putLong(operand);
+		immediateKind[0] = null;
+		count++;
+	}
+
+	private void flush() throws IOException {
+		records.flip();
+		while (records.hasRemaining()) {
+			channel.write(records);
+		}
+		records.clear();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package logic;
+
+import java.util.Arrays;
+
+// Saturating counters 0..3, 2 and 3 predict taken. Counters start weakly not taken.
+public class TwoBitPredictor implements BranchPredictor {
+	private static final byte WEAKLY_NOT_TAKEN = 1;
+
+	private final byte[] counters;
+	final int mask;
+
+	public TwoBitPredictor(int size) {
+		if (Integer.bitCount(size) != 1) {
+			throw new IllegalArgumentException("Predictor size must be a power of two: " + size);
+		}
+		counters = new byte[size];
+		mask = size - 1;
+		Arrays.fill(counters, WEAKLY_NOT_TAKEN);
+	}
+
+	TwoBitPredictor(TwoBitPredictor predictor) {
+		counters = predictor.counters.clone();
+		mask = predictor.mask;
+	}
+
+	@Override
+	public int entry(int pc) {
+		return pc & mask;
+	}
+
+	@Override
+	public boolean predict(int entry) {
+		return counters[entry] >= 2;
+	}
+
+	@Override
+	public void update(int entry, boolean taken) {
+		if (taken) {
+			if (counters[entry] < 3) {
+				counters[entry]++;
+			}
+		} else if (counters[entry] > 0) {
+			counters[entry]--;
+		}
+	}
+
+	@Override
+	public BranchPredictor copy() {
+		return new TwoBitPredictor(this);
+	}
+
+	@Override
+	public void reset() {
+		Arrays.fill(counters, WEAKLY_NOT_TAKEN);
+	}
+}
@@ -0,0 +1,6 @@
+package logic;
+
+public enum ValueKind {
+	INT,
+	FP
+}
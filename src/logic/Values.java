@@ -0,0 +1,73 @@
+package logic;
+
+// Operand values are kept as raw 64-bit words next to a ValueKind: FP words hold the
+// IEEE-754 bits of a double, INT words hold the integer itself. A null kind means "no value".
+public final class Values {
+	private Values() {
+	}
+
+	public static long fromDouble(double value) {
+		return Double.doubleToRawLongBits(value);
+	}
+
+	public static double toDouble(long bits, ValueKind kind) {
+		return kind == ValueKind.INT ? (double) bits : Double.longBitsToDouble(bits);
+	}
+
+	// Kind of a literal operand such as an immediate: whole numbers are INT, anything else FP
+	public static ValueKind kindOf(String literal) {
+		for (int i = 0; i < literal.length(); i++) {
+			char c = literal.charAt(i);
+			if (!(c >= '0' && c <= '9') && !(i == 0 && (c == '-' || c == '+') && literal.length() > 1)) {
+				return ValueKind.FP;
+			}
+		}
+		return ValueKind.INT;
+	}
+
+	public static long parse(String literal, ValueKind kind) {
+		return kind == ValueKind.INT ? Long.parseLong(literal) : fromDouble(Double.parseDouble(literal));
+	}
+
+	// FP operations always produce FP results, integer immediates only stay INT when both inputs are INT
+	public static ValueKind resultKind(InstructionType operation, ValueKind a, ValueKind b) {
+		if (InstructionType.isFloatingPointOperation(operation)) {
+			return ValueKind.FP;
+		}
+		return a == ValueKind.INT && b == ValueKind.INT ? ValueKind.INT : ValueKind.FP;
+	}
+
+	public static long compute(InstructionType operation, long a, ValueKind aKind, long b, ValueKind bKind) {
+		if (resultKind(operation, aKind, bKind) == ValueKind.INT) {
+			switch (operation) {
+				case DADDI:
+					return a + b;
+				case DSUBI:
+					return a - b;
+				default:
+					break;
+			}
+		}
+		double x = toDouble(a, aKind);
+		double y = toDouble(b, bKind);
+		switch (operation) {
+			case ADD_D, ADD_S, DADDI:
+				return fromDouble(x + y);
+			case SUB_D, SUB_S, DSUBI:
+				return fromDouble(x - y);
+			case MUL_D, MUL_S:
+				return fromDouble(x * y);
+			case DIV_D, DIV_S:
+				return fromDouble(x / y);
+			default:
+				throw new IllegalArgumentException("Not an arithmetic operation: " + operation);
+		}
+	}
+
+	public static String toString(long bits, ValueKind kind) {
+		if (kind == null) {
+			return null;
+		}
+		return kind == ValueKind.INT ? Long.toString(bits) : Double.toString(Double.longBitsToDouble(bits));
+	}
+}
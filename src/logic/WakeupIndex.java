@@ -0,0 +1,119 @@
+package logic;
+
+import java.util.Arrays;
+
+// For every producer tag, an intrusive doubly linked list of the consumer slots waiting on it.
+// Linking, unlinking and walking a tag's consumers never touch unrelated slots. The number of
+// counted consumers per tag is kept up to date as slots are linked and unlinked.
+public class WakeupIndex {
+	private static final int NONE = -1;
+
+	public interface CountListener {
+		void countChanged(int tag, int count);
+	}
+
+	private final int[] head; // per tag
+	private final int[] next; // per slot
+	private final int[] prev; // per slot
+	private final int[] waitingOn; // per slot, Tags.READY when not linked
+	private final int[] count; // per tag
+	private final boolean[] uncounted; // per slot
+	private CountListener listener;
+
+	public WakeupIndex(int tagCount, int slotCount) {
+		head = new int[tagCount];
+		count = new int[tagCount];
+		next = new int[slotCount];
+		prev = new int[slotCount];
+		waitingOn = new int[slotCount];
+		uncounted = new boolean[slotCount];
+		clear();
+	}
+
+	public WakeupIndex(WakeupIndex index) {
+		head = index.head.clone();
+		count = index.count.clone();
+		next = index.next.clone();
+		prev = index.prev.clone();
+		waitingOn = index.waitingOn.clone();
+		uncounted = index.uncounted.clone();
+	}
+
+	public void setCountListener(CountListener listener) {
+		this.listener = listener;
+	}
+
+	// Slot still gets woken up but does not add to its tag's dependent count
+	public void excludeFromCount(int slot) {
+		uncounted[slot] = true;
+	}
+
+	public int count(int tag) {
+		return count[tag];
+	}
+
+	// Make slot wait on tag, dropping whatever it waited on before
+	public void await(int slot, int tag) {
+		cancel(slot);
+		if (tag == Tags.READY) {
+			return;
+		}
+		waitingOn[slot] = tag;
+		prev[slot] = NONE;
+		next[slot] = head[tag];
+		if (head[tag] != NONE) {
+			prev[head[tag]] = slot;
+		}
+		head[tag] = slot;
+		if (!uncounted[slot]) {
+			changeCount(tag, 1);
+		}
+	}
+
+	public void cancel(int slot) {
+		int tag = waitingOn[slot];
+		if (tag == Tags.READY) {
+			return;
+		}
+		if (prev[slot] != NONE) {
+			next[prev[slot]] = next[slot];
+		} else {
+			head[tag] = next[slot];
+		}
+		if (next[slot] != NONE) {
+			prev[next[slot]] = prev[slot];
+		}
+		waitingOn[slot] = Tags.READY;
+		if (!uncounted[slot]) {
+			changeCount(tag, -1);
+		}
+	}
+
+	private void changeCount(int tag, int delta) {
+		count[tag] += delta;
+		if (listener != null) {
+			listener.countChanged(tag, count[tag]);
+		}
+	}
+
+	// Detach and return the first consumer of tag, or -1 once none are left
+	public int poll(int tag) {
+		int slot = head[tag];
+		if (slot != NONE) {
+			cancel(slot);
+		}
+		return slot;
+	}
+
+	public int waitingOn(int slot) {
+		return waitingOn[slot];
+	}
+
+	public void clear() {
+		Arrays.fill(head, NONE);
+		Arrays.fill(next, NONE);
+		Arrays.fill(prev, NONE);
+		Arrays.fill(waitingOn, Tags.READY);
+		Arrays.fill(count, 0);
+	}
+}
@@ -0,0 +1,45 @@
+package logic;
+
+import java.util.Random;
+
+// States rebuilt from checkpoints and replay have to match the per-cycle delta history. Runs random
+// machines once with CycleHistory and once per checkpoint interval and cache size, then asks for
+// every cycle in order and for random cycles, so replay starts from a checkpoint, from the cached
+// states and past both. Run with
+//   javac -d out src/logic/*.java test/logic/*.java && java -cp out logic.CheckpointHistoryTest [machines]
+public class CheckpointHistoryTest {
+	private static final int[] INTERVALS = {1, 3, 8, 32};
+	private static final int[] CACHED_STATES = {1, 4};
+
+	public static void main(String[] args) {
+		int machines = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		for (long seed = 1; seed <= machines; seed++) {
+			Random random = RandomMachines.random(seed);
+			MachineConfig config = RandomMachines.config(random);
+			Processor deltas = RandomMachines.processor(seed, config);
+			EventDrivenTest.run(deltas);
+			String[] expected = new String[deltas.getCycleCount()];
+			for (int i = 0; i < expected.length; i++) {
+				expected[i] = RandomMachines.describe(deltas.getCycleState(i));
+			}
+			for (int interval : INTERVALS) {
+				for (int cachedStates : CACHED_STATES) {
+					Processor checkpoints = RandomMachines.processor(seed, config);
+					checkpoints.useCheckpoints(interval, cachedStates);
+					EventDrivenTest.run(checkpoints);
+					String machine = "seed " + seed + ", interval " + interval + ", " + cachedStates + " cached: ";
+					RandomMachines.assertEqual(RandomMachines.counters(deltas), RandomMachines.counters(checkpoints), machine + "counters");
+					RandomMachines.assertEqual(String.valueOf(expected.length), String.valueOf(checkpoints.getCycleCount()), machine + "cycle count");
+					for (int i = 0; i < expected.length; i++) {
+						RandomMachines.assertEqual(expected[i], RandomMachines.describe(checkpoints.getCycleState(i)), machine + "state " + i);
+					}
+					for (int n = 0; n < 2 * expected.length; n++) {
+						int i = random.nextInt(expected.length);
+						RandomMachines.assertEqual(expected[i], RandomMachines.describe(checkpoints.getCycleState(i)), machine + "state " + i);
+					}
+				}
+			}
+		}
+		System.out.println(machines + " machines match for intervals of 1, 3, 8 and 32 cycles");
+	}
+}
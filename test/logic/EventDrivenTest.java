@@ -0,0 +1,47 @@
+package logic;
+
+// Event-driven mode has to produce exactly the states and counters of stepping every cycle. Runs
+// random machines, with and without reorder buffer, several buses, MSHRs and unit pools, both ways
+// and compares every recorded cycle. Run with
+//   javac -d out src/logic/*.java test/logic/*.java && java -cp out logic.EventDrivenTest [machines]
+public class EventDrivenTest {
+	static final int MAX_CYCLES = 20000;
+
+	public static void main(String[] args) {
+		int machines = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+		long skipped = 0;
+		for (long seed = 1; seed <= machines; seed++) {
+			MachineConfig config = RandomMachines.config(RandomMachines.random(seed));
+			Processor stepped = RandomMachines.processor(seed, config);
+			Processor skipping = RandomMachines.processor(seed, config);
+			skipping.setEventDriven(true);
+			int steps = run(skipping);
+			run(stepped);
+			skipped += stepped.getCycle() - steps;
+			check(seed, stepped, skipping);
+		}
+		System.out.println(machines + " machines match, " + skipped + " cycles skipped");
+	}
+
+	// simulate() calls it took to finish
+	static int run(Processor processor) {
+		int steps = 0;
+		while (!processor.isSimulationComplete()) {
+			if (processor.getCycle() > MAX_CYCLES) {
+				throw new AssertionError("no end after " + MAX_CYCLES + " cycles");
+			}
+			processor.simulate();
+			steps++;
+		}
+		return steps;
+	}
+
+	private static void check(long seed, Processor stepped, Processor skipping) {
+		String machine = "seed " + seed + ": ";
+		RandomMachines.assertEqual(RandomMachines.counters(stepped), RandomMachines.counters(skipping), machine + "counters");
+		RandomMachines.assertEqual(String.valueOf(stepped.getCycleCount()), String.valueOf(skipping.getCycleCount()), machine + "cycle count");
+		for (int i = 0; i < stepped.getCycleCount(); i++) {
+			RandomMachines.assertEqual(RandomMachines.describe(stepped.getCycleState(i)), RandomMachines.describe(skipping.getCycleState(i)), machine + "state " + i);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package logic;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Loading a memory image the way the GUI does: run a program, save the memory it left, load the
+// image into the same processor and restart. The restarted run has to begin with exactly the saved
+// memory and commit every instruction again. Run with
+//   javac -d out src/logic/*.java test/logic/*.java && java -cp out logic.MemoryImageTest [machines]
+public class MemoryImageTest {
+	public static void main(String[] args) throws IOException {
+		int machines = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+		Path saved = Files.createTempFile("saved", ".mem");
+		Path reloaded = Files.createTempFile("reloaded", ".mem");
+		int checked = 0;
+		try {
+			for (long seed = 1; seed <= machines; seed++) {
+				Processor processor = RandomMachines.processor(seed, RandomMachines.config(RandomMachines.random(seed)));
+				// a sparse machine writes near the top of its address space, far too large an image
+				if (processor.getData().getMemorySize() > 1024) {
+					continue;
+				}
+				String machine = "seed " + seed + ": ";
+				EventDrivenTest.run(processor);
+				long committed = processor.getCommittedCount();
+				processor.getData().saveImage(saved);
+
+				processor.getData().loadImage(MemoryImage.open(saved));
+				processor.restart();
+				RandomMachines.assertEqual("false", String.valueOf(processor.isSimulationComplete()), machine + "finished right after the restart");
+				processor.getCycleState(0).data.saveImage(reloaded);
+				if (!Arrays.equals(Files.readAllBytes(saved), Files.readAllBytes(reloaded))) {
+					throw new AssertionError(machine + "the restarted run does not start from the loaded memory");
+				}
+				EventDrivenTest.run(processor);
+				RandomMachines.assertEqual(String.valueOf(committed), String.valueOf(processor.getCommittedCount()), machine + "committed instructions");
+				// drop the mappings before the files go
+				processor.getData().loadImage(null);
+				checked++;
+			}
+		} finally {
+			delete(saved);
+			delete(reloaded);
+		}
+		System.out.println(checked + " machines ran again from their memory image");
+	}
+
+	// Windows refuses to delete a file while a mapping of it is still waiting to be collected
+	private static void delete(Path path) {
+		try {
+			Files.delete(path);
+		} catch (IOException e) {
+			path.toFile().deleteOnExit();
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package logic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Random machines and looping programs for the tests that compare two ways of running one program.
+// Every machine built from one seed starts in the same state, registers included, so the runs are
+// expected to agree cycle for cycle.
+final class RandomMachines {
+	private static final InstructionType[] ARITHMETIC = {InstructionType.ADD_D, InstructionType.SUB_D, InstructionType.MUL_D, InstructionType.DIV_D};
+	private static final int REGISTERS = 12;
+
+	private RandomMachines() {
+	}
+
+	// Generator for a machine seed. The first draws of java.util.Random hardly differ between
+	// consecutive seeds, so the seed is spread out first.
+	static Random random(long seed) {
+		return new Random(seed * 0x9E3779B97F4A7C15L);
+	}
+
+	// Reorder buffer, buses, MSHRs and unit pools are each on in roughly half the machines
+	static MachineConfig config(Random random) {
+		MachineConfig config = MachineConfig.defaults()
+				.withLatency(InstructionType.ADD_D, 1 + random.nextInt(4))
+				.withLatency(InstructionType.SUB_D, 1 + random.nextInt(4))
+				.withLatency(InstructionType.MUL_D, 2 + random.nextInt(12))
+				.withLatency(InstructionType.DIV_D, 2 + random.nextInt(30))
+				.withLatency(InstructionType.L_D, 1 + random.nextInt(3))
+				.withLatency(InstructionType.S_D, 1 + random.nextInt(3))
+				.withFetchDepth(1 + random.nextInt(6))
+				.withIssueWidth(1 + random.nextInt(3))
+				.withBusCount(1 + random.nextInt(3))
+				.withArbitration(CdbArbitration.values()[random.nextInt(CdbArbitration.values().length)]);
+		if (random.nextBoolean()) {
+			config = config.withRobSize(4 + random.nextInt(16))
+					.withBranchUnits(1 + random.nextInt(2))
+					.withPredictor(BranchPredictorType.values()[random.nextInt(BranchPredictorType.values().length)])
+					.withPredictorEntries(16)
+					.withHistoryBits(random.nextInt(4));
+		}
+		if (random.nextBoolean()) {
+			config = config.withMshrCount(1 + random.nextInt(4));
+		}
+		if (random.nextBoolean()) {
+			config = config.withUnits(1 + random.nextInt(2), 2 + random.nextInt(8), random.nextBoolean(), InstructionType.MUL_D, InstructionType.DIV_D);
+		}
+		if (random.nextBoolean()) {
+			config = config.withUnits(1, 1 + random.nextInt(3), random.nextBoolean(), InstructionType.ADD_D, InstructionType.SUB_D);
+		}
+		return config;
+	}
+
+	// Random straight-line code, then a loop around more random code, then some more
+	static List<Instruction> program(Random random, int memorySize) {
+		List<Instruction> program = new ArrayList<>();
+		body(random, program, 2 + random.nextInt(6), memorySize);
+		int loopStart = program.size() + 3;
+		// F1 becomes 0 and F2 counts the iterations down to it, the body never writes either
+		program.add(new Instruction("SUB_D", "F1", "F1", "F1"));
+		program.add(new Instruction("DADDI", "F2", "F1", String.valueOf(1 + random.nextInt(4))));
+		body(random, program, 2 + random.nextInt(8), memorySize);
+		program.add(new Instruction("DSUBI", "F2", "F2", "1"));
+		program.add(new Instruction("BNE", "F2", "F1", String.valueOf(loopStart)));
+		body(random, program, 1 + random.nextInt(5), memorySize);
+		return program;
+	}
+
+	private static void body(Random random, List<Instruction> program, int count, int memorySize) {
+		for (int i = 0; i < count; i++) {
+			String dest = "F" + (3 + random.nextInt(REGISTERS - 3));
+			switch (random.nextInt(5)) {
+				case 0, 1 -> program.add(new Instruction(ARITHMETIC[random.nextInt(ARITHMETIC.length)].name(), dest, register(random), register(random)));
+				case 2 -> program.add(new Instruction(random.nextBoolean() ? "DADDI" : "DSUBI", dest, register(random), String.valueOf(random.nextInt(10))));
+				case 3 -> program.add(new Instruction("L_D", dest, String.valueOf(address(random, memorySize)), "null"));
+				default -> program.add(new Instruction("S_D", dest, String.valueOf(address(random, memorySize)), "null"));
+			}
+		}
+	}
+
+	private static String register(Random random) {
+		return "F" + random.nextInt(REGISTERS);
+	}
+
+	// A few words close together so loads meet stores and blocks, and one far away for sparse memories
+	private static int address(Random random, int memorySize) {
+		if (random.nextInt(8) == 0) {
+			return memorySize - 4 * (1 + random.nextInt(4));
+		}
+		return 4 * random.nextInt(24);
+	}
+
+	// Builds the machine seed describes with the given history and skipping settings
+	static Processor processor(long seed, MachineConfig config) {
+		Random random = random(seed ^ 1);
+		boolean sparse = random.nextBoolean();
+		int memorySize = sparse ? 1 << 24 : 1024;
+		List<Instruction> program = program(random, memorySize);
+		List<CacheLevel> levels = new ArrayList<>();
+		levels.add(new CacheLevel(16, 4, 1, 2, ReplacementPolicy.values()[random.nextInt(ReplacementPolicy.values().length)], InclusionPolicy.NON_INCLUSIVE));
+		if (random.nextBoolean()) {
+			levels.add(new CacheLevel(64, 8, 3, 4, ReplacementPolicy.LRU, InclusionPolicy.values()[random.nextInt(InclusionPolicy.values().length)]));
+		}
+		Data data = new Data(levels, 5 + random.nextInt(20), memorySize, MemoryFill.RANDOM, random.nextLong(), sparse);
+
+		List<ReservationStationGroup> stations = new ArrayList<>();
+		for (InstructionType operation : new InstructionType[]{InstructionType.ADD_D, InstructionType.SUB_D, InstructionType.MUL_D, InstructionType.DIV_D, InstructionType.DADDI, InstructionType.DSUBI}) {
+			stations.add(new ReservationStationGroup(1 + random.nextInt(3), operation));
+		}
+		List<LoadStoreBufferGroup> buffers = new ArrayList<>();
+		buffers.add(new LoadStoreBufferGroup(1 + random.nextInt(3), InstructionType.L_D));
+		buffers.add(new LoadStoreBufferGroup(1 + random.nextInt(3), InstructionType.S_D));
+
+		Processor processor = new Processor(stations, buffers, data, program, REGISTERS, config);
+		// the register file starts out random, give every machine of this seed the same values
+		for (int i = 0; i < REGISTERS; i++) {
+			processor.getRegisterFile().getRegister(i).setValue(Values.fromDouble(random.nextInt(2000) / 8.0), ValueKind.FP);
+		}
+		processor.restart();
+		return processor;
+	}
+
+	// Everything a state shows, memory and every cache level included
+	static String describe(CycleState state) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("cycle ").append(state.cycle).append(state.isFinished ? " finished\n" : "\n");
+		sb.append(state);
+		for (Register register : state.registerFile.getRegisters()) {
+			sb.append(register).append("\n");
+		}
+		sb.append(state.data).append("\n").append(state.data.getMemoryEntries());
+		return sb.toString();
+	}
+
+	// Statistics the processors report at the end of a run
+	static String counters(Processor processor) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("cycle=").append(processor.getCycle())
+				.append(" issued=").append(processor.getIssuedCount())
+				.append(" committed=").append(processor.getCommittedCount())
+				.append(" squashed=").append(processor.getSquashedCount())
+				.append(" mispredicted=").append(processor.getMispredictCount())
+				.append(" unitWait=").append(processor.getUnitWaitCycles())
+				.append(" forwarded=").append(processor.getForwardedLoads())
+				.append(" bypassing=").append(processor.getBypassingLoads())
+				.append(" orderStalls=").append(processor.getMemoryOrderStalls())
+				.append(" primaryMisses=").append(processor.getPrimaryMisses())
+				.append(" mergedMisses=").append(processor.getMergedMisses())
+				.append(" mshrStalls=").append(processor.getMshrStalls());
+		for (int bus = 0; bus < processor.getBusCount(); bus++) {
+			sb.append(" bus").append(bus).append('=').append(processor.getBusyCycles(bus));
+		}
+		return sb.toString();
+	}
+
+	static void assertEqual(String expected, String actual, String what) {
+		if (!expected.equals(actual)) {
+			throw new AssertionError(what + " differs\nexpected:\n" + expected + "\nactual:\n" + actual);
+		}
+	}
+}